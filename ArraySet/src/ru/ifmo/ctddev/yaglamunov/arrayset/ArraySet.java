@@ -2,59 +2,117 @@ package ru.ifmo.ctddev.yaglamunov.arrayset;
 
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 @SuppressWarnings("WeakerAccess")
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     private class ArraySetIterator implements Iterator<T> {
         private int position;
-        private final boolean descending;
+        private final int end;
+        private final int step;
 
-        ArraySetIterator(int position) {
-            this.position = position;
-            descending = false;
-        }
-
-        ArraySetIterator(int position, boolean descending) {
-            this.position = position;
-            this.descending = descending;
+        ArraySetIterator(boolean ascending) {
+            position = ascending ? from : to - 1;
+            end = ascending ? to : from - 1;
+            step = ascending ? 1 : -1;
         }
 
         @Override
         public boolean hasNext() {
-            return (!descending ? position < size() : position >= 0);
+            return position != end;
         }
 
         @Override
         public T next() {
-            return data.get(!descending ? position++ : position--);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = data.get(position);
+            position += step;
+            return result;
         }
     }
 
-    private class DescendingList extends AbstractList<T> {
-        private final List<T> data;
+    private class ArraySetSpliterator implements Spliterator<T> {
+        private int position;
+        private final int end;
+
+        ArraySetSpliterator(int position, int end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (position < end) {
+                action.accept(element(position++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; position < end; position++) {
+                action.accept(element(position));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (position + end) >>> 1;
+            if (middle <= position) {
+                return null;
+            }
+            Spliterator<T> prefix = new ArraySetSpliterator(position, middle);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
 
-        DescendingList(List<T> other) {
-            data = other;
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | IMMUTABLE;
         }
 
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
+    private class ElementList extends AbstractList<T> implements RandomAccess {
         @Override
         public T get(int index) {
-            return data.get(size() - index - 1);
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return element(index);
         }
 
         @Override
         public int size() {
-            return data.size();
+            return size;
         }
     }
 
+    private static final int PARALLEL_BATCH = 1 << 13;
+
     private final List<T> data;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+    private final Comparator<T> rootComparator;
     private final Comparator<T> comparator;
     private final int size;
 
-    private int find(T e, boolean inclusive, boolean lowerBound) {
-        int position = Collections.binarySearch(data, e, comparator);
+    static int position(int position, boolean inclusive, boolean lowerBound) {
         if (position < 0) {
             if (lowerBound) {
                 return -position - (inclusive ? 1 : 2);
@@ -70,14 +128,120 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         }
     }
 
-    private int compare(T a, T b) {
-        if (comparator == null) {
+    static int clamp(int position, int from, int to) {
+        if (from <= position && position < to) {
+            return position;
+        }
+        int point = position < 0 ? -position - 1 : position;
+        return -Math.max(from, Math.min(point, to)) - 1;
+    }
+
+    private int rootSearch(T e) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = compareRoot(data.get(middle), e);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int search(T e) {
+        int position = rootSearch(e);
+        boolean found = position >= 0;
+        int point = found ? position : -position - 1;
+        int local = !descending ? point - from : to - 1 - point + (found ? 0 : 1);
+        if (found && 0 <= local && local < size) {
+            return local;
+        }
+        return -Math.max(0, Math.min(local, size)) - 1;
+    }
+
+    private int find(T e, boolean inclusive, boolean lowerBound) {
+        return position(search(e), inclusive, lowerBound);
+    }
+
+    private static boolean isSortedSet(Collection<?> collection, Comparator<?> comparator) {
+        return collection instanceof SortedSet && Objects.equals(((SortedSet<?>) collection).comparator(), comparator);
+    }
+
+    private boolean isSorted(List<? extends T> keys) {
+        for (int i = 1; i < keys.size(); i++) {
+            if (compare(keys.get(i - 1), keys.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] searchAll(List<? extends T> keys) {
+        int[] result = new int[keys.size()];
+        if (isSorted(keys)) {
+            int low = 0;
+            for (int i = 0; i < result.length; i++) {
+                T key = keys.get(i);
+                int high = low;
+                int step = 1;
+                while (high < size && compare(element(high), key) < 0) {
+                    low = high + 1;
+                    high = step < size - low ? low + step : size;
+                    step = step < size / 2 ? step << 1 : size;
+                }
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(element(middle), key) < 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                result[i] = low < size && compare(element(low), key) == 0 ? low : -low - 1;
+            }
+        } else if (result.length >= PARALLEL_BATCH) {
+            IntStream.range(0, result.length).parallel().forEach(i -> result[i] = search(keys.get(i)));
+        } else {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = search(keys.get(i));
+            }
+        }
+        return result;
+    }
+
+    private List<T> findAll(List<? extends T> keys, boolean inclusive, boolean lowerBound) {
+        List<T> result = new ArrayList<>(keys.size());
+        for (int position : searchAll(keys)) {
+            result.add(get(position(position, inclusive, lowerBound)));
+        }
+        return result;
+    }
+
+    private int compareRoot(T a, T b) {
+        if (rootComparator == null) {
             return ((Comparable<? super T>) a).compareTo(b);
         } else {
-            return comparator.compare(a, b);
+            return rootComparator.compare(a, b);
         }
     }
 
+    private int compare(T a, T b) {
+        return !descending ? compareRoot(a, b) : compareRoot(b, a);
+    }
+
+    private int rootPosition(int position) {
+        return !descending ? from + position : to - 1 - position;
+    }
+
+    private T element(int position) {
+        return data.get(rootPosition(position));
+    }
+
     private T get(int position) {
         if (position < 0) {
             return null;
@@ -85,20 +249,32 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (position >= size) {
             return null;
         }
-        return data.get(position);
+        return element(position);
     }
 
+    @SuppressWarnings("unchecked")
     public ArraySet(Collection<T> collection, Comparator<T> comparator) {
         this.comparator = comparator;
-        ArrayList<T> tmp = new ArrayList<>(collection);
-        tmp.sort(this.comparator);
-        data = new ArrayList<>();
-        for (int i = 0; i < tmp.size(); i++) {
-            if (i == 0 || compare(tmp.get(i), tmp.get(i - 1)) != 0) {
-                data.add(tmp.get(i));
+        rootComparator = comparator;
+        descending = false;
+        T[] array = (T[]) collection.toArray();
+        int count = array.length;
+        if (!isSortedSet(collection, comparator)) {
+            Arrays.parallelSort(array, comparator);
+            count = 0;
+            for (int i = 0; i < array.length; i++) {
+                if (i == 0 || compare(array[i], array[count - 1]) != 0) {
+                    array[count++] = array[i];
+                }
+            }
+            if (count != array.length) {
+                array = Arrays.copyOf(array, count);
             }
         }
-        size = data.size();
+        data = Arrays.asList(array);
+        from = 0;
+        to = count;
+        size = count;
     }
 
     public ArraySet(Collection<T> collection){
@@ -109,10 +285,32 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         this(Collections.emptyList());
     }
 
-    private ArraySet(List<T> collection, Comparator<T> comparator) {
-        data = collection;
-        size = data.size();
+    private ArraySet(ArraySet<T> parent, int from, int to, boolean descending) {
+        data = parent.data;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+        rootComparator = parent.rootComparator;
+        comparator = !descending ? rootComparator : Collections.reverseOrder(rootComparator);
+        size = to - from;
+    }
+
+    private ArraySet(List<T> sorted, Comparator<T> comparator) {
+        data = sorted;
+        from = 0;
+        to = sorted.size();
+        descending = false;
+        rootComparator = comparator;
         this.comparator = comparator;
+        size = to;
+    }
+
+    static <T> ArraySet<T> fromSorted(List<T> sorted, Comparator<T> comparator) {
+        return new ArraySet<>(sorted, comparator);
+    }
+
+    List<T> asList() {
+        return new ElementList();
     }
 
     @Override
@@ -157,13 +355,42 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public boolean contains(Object o) {
-        T pos = floor((T) o);
-        return pos != null && compare(pos, (T) o) == 0;
+        return search((T) o) >= 0;
+    }
+
+    /**
+     * Tests every key for membership, storing the answer for {@code keys.get(i)} into {@code result[i]}.
+     * Sorted batches are answered with a single galloping pass over the set.
+     */
+    public void containsAll(List<? extends T> keys, boolean[] result) {
+        int[] positions = searchAll(keys);
+        for (int i = 0; i < positions.length; i++) {
+            result[i] = positions[i] >= 0;
+        }
+    }
+
+    /**
+     * Returns {@link #floor} of every key, in the order of {@code keys}.
+     */
+    public List<T> floorAll(List<? extends T> keys) {
+        return findAll(keys, true, false);
+    }
+
+    /**
+     * Returns {@link #ceiling} of every key, in the order of {@code keys}.
+     */
+    public List<T> ceilingAll(List<? extends T> keys) {
+        return findAll(keys, true, true);
     }
 
     @Override
     public Iterator<T> iterator() {
-        return new ArraySetIterator(0);
+        return new ArraySetIterator(!descending);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArraySetSpliterator(0, size);
     }
 
     @Override
@@ -198,38 +425,38 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public Iterator<T> descendingIterator() {
-        return new ArraySetIterator(size - 1, true);
+        return new ArraySetIterator(descending);
     }
 
     @Override
     public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(new DescendingList(data), comparator.reversed());
+        return new ArraySet<>(this, from, to, !descending);
     }
 
     @Override
     public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
-        int from = Math.max(find(fromElement, fromInclusive, fromInclusive), 0);
-        int to = Math.min(find(toElement, toInclusive, !toInclusive), size - 1);
-        if (from > to) {
-            return new ArraySet<>();
-        }
-        return new ArraySet<>(data.subList(from, to + 1), comparator);
+        return range(find(fromElement, fromInclusive, fromInclusive), find(toElement, toInclusive, !toInclusive));
     }
 
     @Override
     public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        if (isEmpty()) {
-            return new ArraySet<>();
-        }
-        return subSet(first(), true, toElement, inclusive);
+        return range(0, find(toElement, inclusive, !inclusive));
     }
 
     @Override
     public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        if (isEmpty()) {
-            return new ArraySet<>();
+        return range(find(fromElement, inclusive, inclusive), size - 1);
+    }
+
+    private ArraySet<T> range(int first, int last) {
+        first = Math.max(first, 0);
+        last = Math.min(last, size - 1);
+        if (first > last) {
+            return new ArraySet<>(this, from, from, descending);
         }
-        return subSet(fromElement, inclusive, last(), true);
+        int low = rootPosition(!descending ? first : last);
+        int high = rootPosition(!descending ? last : first);
+        return new ArraySet<>(this, low, high + 1, descending);
     }
 
     @Override
@@ -257,7 +484,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        return data.get(0);
+        return element(0);
     }
 
     @Override
@@ -265,6 +492,6 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        return data.get(size - 1);
+        return element(size - 1);
     }
 }
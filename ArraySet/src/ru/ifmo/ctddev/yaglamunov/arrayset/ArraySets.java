@@ -0,0 +1,168 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Set algebra on {@link ArraySet}s ordered by the same comparator.
+ * <p>
+ * Every operation is a single merge of both sets. Runs of elements present in only one set
+ * are skipped with a galloping search, so merging a small set into a large one costs
+ * {@code O(m log(n / m))} comparisons rather than {@code O(n + m)}.
+ * Parallel variants split both sets by pivots taken from the larger one and merge the pieces independently.
+ */
+public final class ArraySets {
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int ONLY_FIRST = 1;
+    private static final int ONLY_SECOND = 2;
+    private static final int BOTH = 4;
+
+    private ArraySets() {
+    }
+
+    public static <T> ArraySet<T> union(ArraySet<T> a, ArraySet<T> b) {
+        return union(a, b, false);
+    }
+
+    public static <T> ArraySet<T> union(ArraySet<T> a, ArraySet<T> b, boolean parallel) {
+        return combine(a, b, ONLY_FIRST | ONLY_SECOND | BOTH, parallel);
+    }
+
+    public static <T> ArraySet<T> intersect(ArraySet<T> a, ArraySet<T> b) {
+        return intersect(a, b, false);
+    }
+
+    public static <T> ArraySet<T> intersect(ArraySet<T> a, ArraySet<T> b, boolean parallel) {
+        return combine(a, b, BOTH, parallel);
+    }
+
+    public static <T> ArraySet<T> difference(ArraySet<T> a, ArraySet<T> b) {
+        return difference(a, b, false);
+    }
+
+    public static <T> ArraySet<T> difference(ArraySet<T> a, ArraySet<T> b, boolean parallel) {
+        return combine(a, b, ONLY_FIRST, parallel);
+    }
+
+    public static <T> ArraySet<T> symmetricDifference(ArraySet<T> a, ArraySet<T> b) {
+        return symmetricDifference(a, b, false);
+    }
+
+    public static <T> ArraySet<T> symmetricDifference(ArraySet<T> a, ArraySet<T> b, boolean parallel) {
+        return combine(a, b, ONLY_FIRST | ONLY_SECOND, parallel);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArraySet<T> combine(ArraySet<T> a, ArraySet<T> b, int keep, boolean parallel) {
+        if (!Objects.equals(a.comparator(), b.comparator())) {
+            throw new IllegalArgumentException("Sets are ordered by different comparators");
+        }
+        Comparator<T> comparator = (Comparator<T>) a.comparator();
+        List<T> first = a.asList();
+        List<T> second = b.asList();
+        List<T> result;
+        if (parallel && first.size() + second.size() >= PARALLEL_THRESHOLD) {
+            result = parallelMerge(first, second, comparator, keep);
+        } else {
+            result = new ArrayList<>();
+            merge(first, 0, first.size(), second, 0, second.size(), comparator, keep, result);
+        }
+        return ArraySet.fromSorted(result, comparator);
+    }
+
+    private static <T> List<T> parallelMerge(List<T> a, List<T> b, Comparator<T> comparator, int keep) {
+        List<T> larger = a.size() >= b.size() ? a : b;
+        int parts = 4 * ForkJoinPool.getCommonPoolParallelism();
+        int[] aBounds = new int[parts + 1];
+        int[] bBounds = new int[parts + 1];
+        aBounds[parts] = a.size();
+        bBounds[parts] = b.size();
+        for (int k = 1; k < parts; k++) {
+            T pivot = larger.get((int) ((long) larger.size() * k / parts));
+            aBounds[k] = lowerBound(a, pivot, comparator);
+            bBounds[k] = lowerBound(b, pivot, comparator);
+        }
+        List<List<T>> pieces = IntStream.range(0, parts).parallel()
+                .mapToObj(k -> {
+                    List<T> piece = new ArrayList<>();
+                    merge(a, aBounds[k], aBounds[k + 1], b, bBounds[k], bBounds[k + 1], comparator, keep, piece);
+                    return piece;
+                })
+                .collect(Collectors.toList());
+        List<T> result = new ArrayList<>(pieces.stream().mapToInt(List::size).sum());
+        pieces.forEach(result::addAll);
+        return result;
+    }
+
+    private static <T> int lowerBound(List<T> list, T key, Comparator<T> comparator) {
+        int position = Collections.binarySearch(list, key, comparator);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private static <T> void merge(List<T> a, int i, int aEnd, List<T> b, int j, int bEnd,
+                                  Comparator<T> comparator, int keep, List<T> result) {
+        while (i < aEnd && j < bEnd) {
+            int cmp = compare(comparator, a.get(i), b.get(j));
+            if (cmp < 0) {
+                int k = gallop(a, i, aEnd, b.get(j), comparator);
+                if ((keep & ONLY_FIRST) != 0) {
+                    result.addAll(a.subList(i, k));
+                }
+                i = k;
+            } else if (cmp > 0) {
+                int k = gallop(b, j, bEnd, a.get(i), comparator);
+                if ((keep & ONLY_SECOND) != 0) {
+                    result.addAll(b.subList(j, k));
+                }
+                j = k;
+            } else {
+                if ((keep & BOTH) != 0) {
+                    result.add(a.get(i));
+                }
+                i++;
+                j++;
+            }
+        }
+        if ((keep & ONLY_FIRST) != 0) {
+            result.addAll(a.subList(i, aEnd));
+        }
+        if ((keep & ONLY_SECOND) != 0) {
+            result.addAll(b.subList(j, bEnd));
+        }
+    }
+
+    /**
+     * Returns the first position in {@code [low, end)} holding an element not less than {@code key},
+     * or {@code end} if there is none.
+     */
+    private static <T> int gallop(List<T> list, int low, int end, T key, Comparator<T> comparator) {
+        int high = low;
+        int step = 1;
+        while (high < end && compare(comparator, list.get(high), key) < 0) {
+            low = high + 1;
+            high = step < end - low ? low + step : end;
+            step = step < end / 2 ? step << 1 : end;
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(comparator, list.get(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(Comparator<T> comparator, T a, T b) {
+        if (comparator == null) {
+            return ((Comparable<? super T>) a).compareTo(b);
+        } else {
+            return comparator.compare(a, b);
+        }
+    }
+}
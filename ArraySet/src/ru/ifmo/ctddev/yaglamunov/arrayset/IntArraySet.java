@@ -0,0 +1,142 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+
+import java.util.*;
+
+@SuppressWarnings("WeakerAccess")
+public class IntArraySet extends PrimitiveArraySet<Integer> {
+    private final int[] data;
+    private final IntEytzingerIndex index;
+
+    private int search(int e) {
+        if (index == null) {
+            return Arrays.binarySearch(data, from, to, e);
+        }
+        return ArraySet.clamp(index.search(e), from, to);
+    }
+
+    private int find(int e, boolean inclusive, boolean lowerBound) {
+        return ArraySet.position(search(e), inclusive, lowerBound);
+    }
+
+    private static int[] sortedDistinct(int[] values) {
+        int[] tmp = values.clone();
+        Arrays.parallelSort(tmp);
+        int count = 0;
+        for (int i = 0; i < tmp.length; i++) {
+            if (i == 0 || tmp[i] != tmp[i - 1]) {
+                tmp[count++] = tmp[i];
+            }
+        }
+        return count == tmp.length ? tmp : Arrays.copyOf(tmp, count);
+    }
+
+    public IntArraySet(int[] values, SearchLayout layout) {
+        this(sortedDistinct(values), layout == SearchLayout.EYTZINGER);
+    }
+
+    public IntArraySet(int[] values) {
+        this(values, SearchLayout.BINARY);
+    }
+
+    public IntArraySet(Collection<Integer> collection) {
+        this(collection.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public IntArraySet() {
+        this(new int[0]);
+    }
+
+    private IntArraySet(int[] data, boolean eytzinger) {
+        this(data, 0, data.length, eytzinger ? new IntEytzingerIndex(data, data.length) : null);
+    }
+
+    private IntArraySet(int[] data, int from, int to, IntEytzingerIndex index) {
+        super(from, to);
+        this.data = data;
+        this.index = index;
+    }
+
+    @Override
+    Integer element(int position) {
+        return data[position];
+    }
+
+    @Override
+    int search(Integer e) {
+        return search(e.intValue());
+    }
+
+    @Override
+    IntArraySet range(int from, int to) {
+        return new IntArraySet(data, from, to, index);
+    }
+
+    /**
+     * Returns {@code true} if this set contains {@code e}, without boxing it.
+     */
+    public boolean containsInt(int e) {
+        return search(e) >= 0;
+    }
+
+    /**
+     * Returns the greatest element strictly less than {@code e}, or {@code defaultValue} if there is none.
+     */
+    public int lowerInt(int e, int defaultValue) {
+        int position = find(e, false, true);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the greatest element less than or equal to {@code e}, or {@code defaultValue} if there is none.
+     */
+    public int floorInt(int e, int defaultValue) {
+        int position = find(e, true, false);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the least element greater than or equal to {@code e}, or {@code defaultValue} if there is none.
+     */
+    public int ceilingInt(int e, int defaultValue) {
+        int position = find(e, true, true);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the least element strictly greater than {@code e}, or {@code defaultValue} if there is none.
+     */
+    public int higherInt(int e, int defaultValue) {
+        int position = find(e, false, false);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    public int firstInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[from];
+    }
+
+    public int lastInt() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[to - 1];
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOfRange(data, from, to);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    @Override
+    public Spliterator<Integer> spliterator() {
+        return Spliterators.spliterator(data, from, to, Spliterator.ORDERED | Spliterator.SORTED
+                | Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+}
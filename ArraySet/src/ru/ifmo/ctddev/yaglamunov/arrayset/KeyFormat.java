@@ -0,0 +1,126 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * Fixed-width binary representation of set elements used by {@link MappedArraySet}.
+ *
+ * @param <T> type of elements.
+ */
+public interface KeyFormat<T> {
+    /**
+     * {@code int} keys in big-endian order.
+     */
+    KeyFormat<Integer> INT = new KeyFormat<Integer>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Integer key) {
+            buffer.putInt(key);
+        }
+
+        @Override
+        public Comparator<Integer> comparator() {
+            return null;
+        }
+    };
+
+    /**
+     * {@code long} keys in big-endian order.
+     */
+    KeyFormat<Long> LONG = new KeyFormat<Long>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Long key) {
+            buffer.putLong(key);
+        }
+
+        @Override
+        public Comparator<Long> comparator() {
+            return null;
+        }
+    };
+
+    /**
+     * Byte strings of exactly {@code length} bytes, ordered lexicographically as unsigned bytes.
+     *
+     * @param length length of every key.
+     * @return format for byte strings of given length.
+     */
+    static KeyFormat<byte[]> bytes(int length) {
+        return new KeyFormat<byte[]>() {
+            @Override
+            public int width() {
+                return length;
+            }
+
+            @Override
+            public byte[] read(ByteBuffer buffer, int offset) {
+                byte[] key = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    key[i] = buffer.get(offset + i);
+                }
+                return key;
+            }
+
+            @Override
+            public void write(ByteBuffer buffer, byte[] key) {
+                if (key.length != length) {
+                    throw new IllegalArgumentException("Expected key of " + length + " bytes, found " + key.length);
+                }
+                buffer.put(key);
+            }
+
+            @Override
+            public Comparator<byte[]> comparator() {
+                return MappedArraySet.UNSIGNED_BYTES;
+            }
+        };
+    }
+
+    /**
+     * @return number of bytes taken by every key.
+     */
+    int width();
+
+    /**
+     * Reads key at given absolute offset without moving buffer position.
+     *
+     * @param buffer buffer to read from.
+     * @param offset offset of the first byte of the key.
+     * @return key.
+     */
+    T read(ByteBuffer buffer, int offset);
+
+    /**
+     * Writes key at the current buffer position.
+     *
+     * @param buffer buffer to write to.
+     * @param key    key to write.
+     */
+    void write(ByteBuffer buffer, T key);
+
+    /**
+     * @return order in which keys are stored in files, or {@code null} for natural ordering.
+     * Formats with the same order return the same comparator, so that their sets can be combined.
+     */
+    Comparator<T> comparator();
+}
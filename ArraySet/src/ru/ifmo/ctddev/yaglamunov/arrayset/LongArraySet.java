@@ -0,0 +1,142 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+
+import java.util.*;
+
+@SuppressWarnings("WeakerAccess")
+public class LongArraySet extends PrimitiveArraySet<Long> {
+    private final long[] data;
+    private final LongEytzingerIndex index;
+
+    private int search(long e) {
+        if (index == null) {
+            return Arrays.binarySearch(data, from, to, e);
+        }
+        return ArraySet.clamp(index.search(e), from, to);
+    }
+
+    private int find(long e, boolean inclusive, boolean lowerBound) {
+        return ArraySet.position(search(e), inclusive, lowerBound);
+    }
+
+    private static long[] sortedDistinct(long[] values) {
+        long[] tmp = values.clone();
+        Arrays.parallelSort(tmp);
+        int count = 0;
+        for (int i = 0; i < tmp.length; i++) {
+            if (i == 0 || tmp[i] != tmp[i - 1]) {
+                tmp[count++] = tmp[i];
+            }
+        }
+        return count == tmp.length ? tmp : Arrays.copyOf(tmp, count);
+    }
+
+    public LongArraySet(long[] values, SearchLayout layout) {
+        this(sortedDistinct(values), layout == SearchLayout.EYTZINGER);
+    }
+
+    public LongArraySet(long[] values) {
+        this(values, SearchLayout.BINARY);
+    }
+
+    public LongArraySet(Collection<Long> collection) {
+        this(collection.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    public LongArraySet() {
+        this(new long[0]);
+    }
+
+    private LongArraySet(long[] data, boolean eytzinger) {
+        this(data, 0, data.length, eytzinger ? new LongEytzingerIndex(data, data.length) : null);
+    }
+
+    private LongArraySet(long[] data, int from, int to, LongEytzingerIndex index) {
+        super(from, to);
+        this.data = data;
+        this.index = index;
+    }
+
+    @Override
+    Long element(int position) {
+        return data[position];
+    }
+
+    @Override
+    int search(Long e) {
+        return search(e.longValue());
+    }
+
+    @Override
+    LongArraySet range(int from, int to) {
+        return new LongArraySet(data, from, to, index);
+    }
+
+    /**
+     * Returns {@code true} if this set contains {@code e}, without boxing it.
+     */
+    public boolean containsLong(long e) {
+        return search(e) >= 0;
+    }
+
+    /**
+     * Returns the greatest element strictly less than {@code e}, or {@code defaultValue} if there is none.
+     */
+    public long lowerLong(long e, long defaultValue) {
+        int position = find(e, false, true);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the greatest element less than or equal to {@code e}, or {@code defaultValue} if there is none.
+     */
+    public long floorLong(long e, long defaultValue) {
+        int position = find(e, true, false);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the least element greater than or equal to {@code e}, or {@code defaultValue} if there is none.
+     */
+    public long ceilingLong(long e, long defaultValue) {
+        int position = find(e, true, true);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    /**
+     * Returns the least element strictly greater than {@code e}, or {@code defaultValue} if there is none.
+     */
+    public long higherLong(long e, long defaultValue) {
+        int position = find(e, false, false);
+        return exists(position) ? data[position] : defaultValue;
+    }
+
+    public long firstLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[from];
+    }
+
+    public long lastLong() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return data[to - 1];
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(data, from, to);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public Spliterator<Long> spliterator() {
+        return Spliterators.spliterator(data, from, to, Spliterator.ORDERED | Spliterator.SORTED
+                | Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+}
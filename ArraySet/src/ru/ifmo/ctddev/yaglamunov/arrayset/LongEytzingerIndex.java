@@ -0,0 +1,42 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+/**
+ * Eytzinger ordered copy of a sorted {@code long} array: node {@code k} has children {@code 2k} and {@code 2k + 1},
+ * descended without branches.
+ */
+class LongEytzingerIndex {
+    private final long[] tree;
+    private final int[] order;
+
+    LongEytzingerIndex(long[] sorted, int size) {
+        tree = new long[size + 1];
+        order = new int[size + 1];
+        order[0] = size;
+        build(sorted, 0, 1);
+    }
+
+    private int build(long[] sorted, int position, int k) {
+        if (k < tree.length) {
+            position = build(sorted, position, 2 * k);
+            tree[k] = sorted[position];
+            order[k] = position++;
+            position = build(sorted, position, 2 * k + 1);
+        }
+        return position;
+    }
+
+    /**
+     * Same contract as {@link java.util.Arrays#binarySearch(long[], long)} on the original sorted array.
+     */
+    int search(long e) {
+        int k = 1;
+        while (k < tree.length) {
+            k = 2 * k + (tree[k] < e ? 1 : 0);
+        }
+        k >>= Integer.numberOfTrailingZeros(~k) + 1;
+        if (k != 0 && tree[k] == e) {
+            return order[k];
+        }
+        return -order[k] - 1;
+    }
+}
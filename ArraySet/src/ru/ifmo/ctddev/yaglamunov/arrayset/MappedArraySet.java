@@ -0,0 +1,151 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Stores sets of fixed-width keys in sorted binary files and opens them back as read-only
+ * {@link ArraySet}s working directly against a memory mapping of the file.
+ * <p>
+ * File layout: magic number, key width ({@code int}), key count ({@code long}), keys in ascending order.
+ */
+public final class MappedArraySet {
+    private static final int MAGIC = 0x41534554;
+    private static final int HEADER = 2 * Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /**
+     * Lexicographic order of byte strings of equal length, comparing bytes as unsigned.
+     */
+    static final Comparator<byte[]> UNSIGNED_BYTES = (a, b) -> {
+        for (int i = 0; i < a.length; i++) {
+            int result = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    };
+
+    private MappedArraySet() {
+    }
+
+    private static class MappedList<T> extends AbstractList<T> implements RandomAccess {
+        private final KeyFormat<T> format;
+        private final MappedByteBuffer[] segments;
+        private final int segmentKeys;
+        private final int size;
+
+        MappedList(FileChannel channel, KeyFormat<T> format, int size) throws IOException {
+            this.format = format;
+            this.size = size;
+            segmentKeys = Integer.MAX_VALUE / format.width();
+            segments = new MappedByteBuffer[size == 0 ? 0 : (size - 1) / segmentKeys + 1];
+            for (int i = 0; i < segments.length; i++) {
+                long keys = Math.min(segmentKeys, size - (long) i * segmentKeys);
+                long offset = HEADER + (long) i * segmentKeys * format.width();
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, keys * format.width());
+            }
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return format.read(segments[index / segmentKeys], index % segmentKeys * format.width());
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Writes set to a file.
+     *
+     * @param set    set to save, its iteration order must be ascending in {@code format} order.
+     * @param format binary representation of keys.
+     * @param file   file to write to, truncated if exists.
+     * @param <T>    type of elements.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if set is not sorted in {@code format} order.
+     */
+    public static <T> void save(SortedSet<T> set, KeyFormat<T> format, Path file) throws IOException {
+        Comparator<T> comparator = format.comparator();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER, HEADER + format.width()));
+            buffer.putInt(MAGIC).putInt(format.width()).putLong(set.size());
+            T previous = null;
+            for (T key : set) {
+                if (previous != null && compare(comparator, previous, key) >= 0) {
+                    throw new IllegalArgumentException("Set is not sorted in key format order");
+                }
+                if (buffer.remaining() < format.width()) {
+                    flush(channel, buffer);
+                }
+                format.write(buffer, key);
+                previous = key;
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(Comparator<T> comparator, T a, T b) {
+        if (comparator == null) {
+            return ((Comparable<? super T>) a).compareTo(b);
+        } else {
+            return comparator.compare(a, b);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps file written by {@link #save} into memory. Nothing is read besides the header,
+     * every lookup reads keys straight from the mapping.
+     *
+     * @param file   file to open.
+     * @param format binary representation of keys, must be the same as used for saving.
+     * @param <T>    type of elements.
+     * @return read-only set backed by the file.
+     * @throws IOException if an I/O error occurs or file is not a saved set of given format.
+     */
+    public static <T> ArraySet<T> open(Path file, KeyFormat<T> format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Unexpected end of file " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a saved set: " + file);
+            }
+            int width = header.getInt();
+            if (width != format.width()) {
+                throw new IOException("Expected keys of " + format.width() + " bytes, found " + width);
+            }
+            long size = header.getLong();
+            if (size > Integer.MAX_VALUE || HEADER + size * width > channel.size()) {
+                throw new IOException("Corrupted set size " + size + " in " + file);
+            }
+            return ArraySet.fromSorted(new MappedList<>(channel, format, (int) size), format.comparator());
+        }
+    }
+}
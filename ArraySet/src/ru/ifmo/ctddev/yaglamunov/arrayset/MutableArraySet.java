@@ -0,0 +1,384 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+
+import java.util.*;
+
+/**
+ * Mutable {@link ArraySet}: updates are collected in small sorted deltas and merged
+ * into the main array once the deltas grow past {@code sqrt(size)} elements.
+ * <p>
+ * Every update publishes a new immutable snapshot, so readers never lock.
+ * Views returned by {@code subSet}, {@code headSet}, {@code tailSet} and {@code descendingSet}
+ * are built from the current {@link #snapshot()} and do not reflect later updates.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MutableArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    private static final int MIN_DELTA = 64;
+
+    private static class Snapshot<T> {
+        final ArraySet<T> base;
+        final ArraySet<T> added;
+        final ArraySet<T> removed;
+
+        Snapshot(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        int size() {
+            return base.size() + added.size() - removed.size();
+        }
+
+        int deltaSize() {
+            return added.size() + removed.size();
+        }
+
+        boolean contains(Object o) {
+            return added.contains(o) || base.contains(o) && !removed.contains(o);
+        }
+    }
+
+    private class MergeIterator implements Iterator<T> {
+        private final Snapshot<T> snapshot;
+        private final Iterator<T> base;
+        private final Iterator<T> added;
+        private final boolean descending;
+        private T nextBase;
+        private T nextAdded;
+
+        MergeIterator(Snapshot<T> snapshot, boolean descending) {
+            this.snapshot = snapshot;
+            this.descending = descending;
+            base = descending ? snapshot.base.descendingIterator() : snapshot.base.iterator();
+            added = descending ? snapshot.added.descendingIterator() : snapshot.added.iterator();
+            nextBase = advanceBase();
+            nextAdded = added.hasNext() ? added.next() : null;
+        }
+
+        private T advanceBase() {
+            while (base.hasNext()) {
+                T e = base.next();
+                if (!snapshot.removed.contains(e)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextBase != null || nextAdded != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result;
+            if (nextAdded == null || nextBase != null && (compare(nextBase, nextAdded) < 0) != descending) {
+                result = nextBase;
+                nextBase = advanceBase();
+            } else {
+                result = nextAdded;
+                nextAdded = added.hasNext() ? added.next() : null;
+            }
+            return result;
+        }
+    }
+
+    private final Comparator<T> comparator;
+    private volatile Snapshot<T> snapshot;
+
+    public MutableArraySet(Collection<T> collection, Comparator<T> comparator) {
+        this.comparator = comparator;
+        snapshot = new Snapshot<>(new ArraySet<>(collection, comparator), empty(), empty());
+    }
+
+    public MutableArraySet(Collection<T> collection) {
+        this(collection, null);
+    }
+
+    public MutableArraySet(Comparator<T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public MutableArraySet() {
+        this(Collections.emptyList());
+    }
+
+    private ArraySet<T> empty() {
+        return ArraySet.fromSorted(Collections.emptyList(), comparator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return ((Comparable<? super T>) a).compareTo(b);
+        } else {
+            return comparator.compare(a, b);
+        }
+    }
+
+    private ArraySet<T> with(ArraySet<T> set, T e) {
+        List<T> list = new ArrayList<>(set.size() + 1);
+        list.addAll(set);
+        list.add(-Collections.binarySearch(list, e, comparator) - 1, e);
+        return ArraySet.fromSorted(list, comparator);
+    }
+
+    private ArraySet<T> without(ArraySet<T> set, T e) {
+        List<T> list = new ArrayList<>(set);
+        list.remove(Collections.binarySearch(list, e, comparator));
+        return ArraySet.fromSorted(list, comparator);
+    }
+
+    private void publish(ArraySet<T> base, ArraySet<T> added, ArraySet<T> removed) {
+        Snapshot<T> next = new Snapshot<>(base, added, removed);
+        if (next.deltaSize() > Math.max(MIN_DELTA, (int) Math.sqrt(base.size()))) {
+            next = merge(next);
+        }
+        snapshot = next;
+    }
+
+    private Snapshot<T> merge(Snapshot<T> current) {
+        List<T> list = new ArrayList<>(current.size());
+        new MergeIterator(current, false).forEachRemaining(list::add);
+        return new Snapshot<>(ArraySet.fromSorted(list, comparator), empty(), empty());
+    }
+
+    private T find(T e, boolean inclusive, boolean greater) {
+        Snapshot<T> current = snapshot;
+        T fromBase = find(current.base, e, inclusive, greater);
+        while (fromBase != null && current.removed.contains(fromBase)) {
+            fromBase = find(current.base, fromBase, false, greater);
+        }
+        T fromAdded = find(current.added, e, inclusive, greater);
+        if (fromBase == null || fromAdded == null) {
+            return fromBase == null ? fromAdded : fromBase;
+        }
+        return (compare(fromBase, fromAdded) < 0) == greater ? fromBase : fromAdded;
+    }
+
+    private static <T> T find(NavigableSet<T> set, T e, boolean inclusive, boolean greater) {
+        if (greater) {
+            return inclusive ? set.ceiling(e) : set.higher(e);
+        } else {
+            return inclusive ? set.floor(e) : set.lower(e);
+        }
+    }
+
+    /**
+     * Returns an immutable {@link ArraySet} with the current contents of this set,
+     * merging pending updates if there are any.
+     */
+    public ArraySet<T> snapshot() {
+        Snapshot<T> current = snapshot;
+        if (current.deltaSize() == 0) {
+            return current.base;
+        }
+        synchronized (this) {
+            if (snapshot.deltaSize() != 0) {
+                snapshot = merge(snapshot);
+            }
+            return snapshot.base;
+        }
+    }
+
+    @Override
+    public T lower(T e) {
+        return find(e, false, false);
+    }
+
+    @Override
+    public T floor(T e) {
+        return find(e, true, false);
+    }
+
+    @Override
+    public T ceiling(T e) {
+        return find(e, true, true);
+    }
+
+    @Override
+    public T higher(T e) {
+        return find(e, false, true);
+    }
+
+    @Override
+    public synchronized T pollFirst() {
+        if (isEmpty()) {
+            return null;
+        }
+        T e = first();
+        remove(e);
+        return e;
+    }
+
+    @Override
+    public synchronized T pollLast() {
+        if (isEmpty()) {
+            return null;
+        }
+        T e = last();
+        remove(e);
+        return e;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return snapshot.contains(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new MergeIterator(snapshot, false);
+    }
+
+    @Override
+    public synchronized boolean add(T e) {
+        Snapshot<T> current = snapshot;
+        if (current.removed.contains(e)) {
+            publish(current.base, current.added, without(current.removed, e));
+            return true;
+        }
+        if (current.base.contains(e) || current.added.contains(e)) {
+            return false;
+        }
+        publish(current.base, with(current.added, e), current.removed);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object o) {
+        Snapshot<T> current = snapshot;
+        T e = (T) o;
+        if (current.added.contains(e)) {
+            publish(current.base, without(current.added, e), current.removed);
+            return true;
+        }
+        if (!current.base.contains(e) || current.removed.contains(e)) {
+            return false;
+        }
+        publish(current.base, current.added, with(current.removed, e));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> c) {
+        if (c.size() <= MIN_DELTA) {
+            boolean changed = false;
+            for (T e : c) {
+                changed |= add(e);
+            }
+            return changed;
+        }
+        Snapshot<T> current = merge(snapshot);
+        List<T> all = new ArrayList<>(current.size() + c.size());
+        all.addAll(current.base);
+        all.addAll(c);
+        ArraySet<T> base = new ArraySet<>(all, comparator);
+        snapshot = new Snapshot<>(base, empty(), empty());
+        return base.size() != current.size();
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> c) {
+        boolean changed = false;
+        for (T e : snapshot()) {
+            if (!c.contains(e)) {
+                changed |= remove(e);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> c) {
+        boolean changed = false;
+        for (Object o : c) {
+            changed |= remove(o);
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = new Snapshot<>(empty(), empty(), empty());
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new MergeIterator(snapshot, true);
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return snapshot().descendingSet();
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        return snapshot().subSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return snapshot().headSet(toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return snapshot().tailSet(fromElement, inclusive);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public T first() {
+        Iterator<T> iterator = iterator();
+        if (!iterator.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public T last() {
+        Iterator<T> iterator = descendingIterator();
+        if (!iterator.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return iterator.next();
+    }
+}
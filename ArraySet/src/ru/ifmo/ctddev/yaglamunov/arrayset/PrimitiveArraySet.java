@@ -0,0 +1,227 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+
+import java.util.*;
+
+/**
+ * Navigation over range {@code [from, to)} of a sorted primitive array without duplicates,
+ * shared by {@link IntArraySet} and {@link LongArraySet}.
+ * Subclasses own the array and box its elements, everything else is done on positions.
+ *
+ * @param <E> boxed type of elements.
+ */
+abstract class PrimitiveArraySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+    private class PrimitiveArraySetIterator implements Iterator<E> {
+        private int position;
+        private final boolean descending;
+
+        PrimitiveArraySetIterator(int position, boolean descending) {
+            this.position = position;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (!descending ? position < to : position >= from);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return element(!descending ? position++ : position--);
+        }
+    }
+
+    private class DescendingList extends AbstractList<E> implements RandomAccess {
+        @Override
+        public E get(int index) {
+            return element(to - index - 1);
+        }
+
+        @Override
+        public int size() {
+            return PrimitiveArraySet.this.size();
+        }
+    }
+
+    final int from;
+    final int to;
+
+    PrimitiveArraySet(int from, int to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Boxes element at given position of the array.
+     */
+    abstract E element(int position);
+
+    /**
+     * Same contract as {@link Arrays#binarySearch(int[], int, int, int)} on range {@code [from, to)}.
+     */
+    abstract int search(E e);
+
+    /**
+     * Creates set over range {@code [from, to)} of the same array.
+     */
+    abstract PrimitiveArraySet<E> range(int from, int to);
+
+    private int find(E e, boolean inclusive, boolean lowerBound) {
+        return ArraySet.position(search(e), inclusive, lowerBound);
+    }
+
+    boolean exists(int position) {
+        return from <= position && position < to;
+    }
+
+    private E get(int position) {
+        return exists(position) ? element(position) : null;
+    }
+
+    @Override
+    public E lower(E e) {
+        return get(find(e, false, true));
+    }
+
+    @Override
+    public E floor(E e) {
+        return get(find(e, true, false));
+    }
+
+    @Override
+    public E ceiling(E e) {
+        return get(find(e, true, true));
+    }
+
+    @Override
+    public E higher(E e) {
+        return get(find(e, false, false));
+    }
+
+    @Override
+    public E pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new PrimitiveArraySetIterator(from, false);
+    }
+
+    @Override
+    public boolean add(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new PrimitiveArraySetIterator(to - 1, true);
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet() {
+        return ArraySet.fromSorted(new DescendingList(), Collections.reverseOrder());
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        return positions(find(fromElement, fromInclusive, fromInclusive), find(toElement, toInclusive, !toInclusive));
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        return positions(from, find(toElement, inclusive, !inclusive));
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        return positions(find(fromElement, inclusive, inclusive), to - 1);
+    }
+
+    private PrimitiveArraySet<E> positions(int first, int last) {
+        if (first > last) {
+            return range(first, first);
+        }
+        return range(first, last + 1);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public E first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return element(from);
+    }
+
+    @Override
+    public E last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return element(to - 1);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+/**
+ * Memory layout used by {@link IntArraySet} and {@link LongArraySet} to answer {@code floor}, {@code ceiling}
+ * and similar queries. {@link ArraySet} always uses binary search: its elements are references,
+ * so an Eytzinger copy would keep pointers rather than keys close together and every probe would still
+ * miss the cache on the referenced object.
+ */
+public enum SearchLayout {
+    /**
+     * Plain binary search over the sorted elements.
+     */
+    BINARY,
+
+    /**
+     * Binary search over an additional copy of elements stored in Eytzinger (breadth-first) order.
+     * Top levels of the implicit search tree share cache lines and every next probe is
+     * prefetch friendly, which pays off once the set no longer fits into L2.
+     */
+    EYTZINGER
+}
@@ -0,0 +1,170 @@
+package ru.ifmo.ctddev.yaglamunov.arrayset;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * JMH benchmarks of {@link ArraySet} against {@link TreeSet}, {@link ConcurrentSkipListSet}
+ * and the other sorted-array sets of this module.
+ * <p>
+ * Usage: {@code org.openjdk.jmh.Main ArraySetBenchmark [-p size=...] [-p distribution=...] [-p implementation=...]}
+ * <p>
+ * Forks run with the default heap. The largest sizes need several gigabytes,
+ * e.g. {@code -jvmArgsAppend "-Xms8g -Xmx8g"}, which also keeps heap resizing out of the measurements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArraySetBenchmark {
+    private static final int PROBES = 1 << 16;
+    private static final long SEED = 4242;
+
+    /**
+     * Sets under test.
+     */
+    public enum Implementation {
+        ARRAY_SET(ArraySet::new),
+        INT_ARRAY_SET(IntArraySet::new),
+        EYTZINGER_INT_ARRAY_SET(source -> new IntArraySet(
+                source.stream().mapToInt(Integer::intValue).toArray(), SearchLayout.EYTZINGER)),
+        TREE_SET(TreeSet::new),
+        CONCURRENT_SKIP_LIST_SET(ConcurrentSkipListSet::new);
+
+        private final Function<List<Integer>, NavigableSet<Integer>> factory;
+
+        Implementation(Function<List<Integer>, NavigableSet<Integer>> factory) {
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Shapes of generated keys.
+     */
+    public enum Distribution {
+        /**
+         * Keys spread over the whole {@code int} range.
+         */
+        UNIFORM,
+        /**
+         * Permutation of {@code [0, size)}.
+         */
+        DENSE,
+        /**
+         * Runs of consecutive keys separated by random gaps, narrowed for large sizes to stay in {@code int} range.
+         */
+        CLUSTERED
+    }
+
+    @Param({"1000", "100000", "10000000", "50000000"})
+    public int size;
+
+    @Param
+    public Distribution distribution;
+
+    @Param
+    public Implementation implementation;
+
+    private List<Integer> source;
+    private NavigableSet<Integer> set;
+    private NavigableSet<Integer> descending;
+    private Integer[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        source = generate(random);
+        set = implementation.factory.apply(source);
+        descending = set.descendingSet();
+
+        probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = random.nextBoolean() ? source.get(random.nextInt(source.size())) : random.nextInt();
+        }
+    }
+
+    private List<Integer> generate(Random random) {
+        List<Integer> keys = new ArrayList<>(size);
+        switch (distribution) {
+            case UNIFORM:
+                for (int i = 0; i < size; i++) {
+                    keys.add(random.nextInt());
+                }
+                break;
+            case DENSE:
+                for (int i = 0; i < size; i++) {
+                    keys.add(i);
+                }
+                Collections.shuffle(keys, random);
+                break;
+            case CLUSTERED:
+                // every run adds at most one gap and one key per element, so the last key is below Integer.MAX_VALUE
+                int gap = Math.max(1, Math.min(1 << 16, Integer.MAX_VALUE / size - 1));
+                for (long key = 0; keys.size() < size; key += 1 + random.nextInt(gap)) {
+                    for (int run = 1 + random.nextInt(64); run > 0 && keys.size() < size; run--) {
+                        keys.add((int) key++);
+                    }
+                }
+                Collections.shuffle(keys, random);
+                break;
+        }
+        return keys;
+    }
+
+    private Integer probe() {
+        return probes[next++ & (PROBES - 1)];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public NavigableSet<Integer> construction() {
+        return implementation.factory.apply(source);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(probe());
+    }
+
+    @Benchmark
+    public Integer floor() {
+        return set.floor(probe());
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        return set.ceiling(probe());
+    }
+
+    @Benchmark
+    public void iteration(Blackhole blackhole) {
+        for (Integer e : set) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public NavigableSet<Integer> subSetCreation() {
+        Integer a = probe();
+        Integer b = probe();
+        return a <= b ? set.subSet(a, true, b, false) : set.subSet(b, true, a, false);
+    }
+
+    @Benchmark
+    public void descendingIteration(Blackhole blackhole) {
+        for (Integer e : descending) {
+            blackhole.consume(e);
+        }
+    }
+}
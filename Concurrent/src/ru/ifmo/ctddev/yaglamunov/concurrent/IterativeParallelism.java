@@ -2,16 +2,21 @@ package ru.ifmo.ctddev.yaglamunov.concurrent;
 
 import info.kgeorgiy.java.advanced.concurrent.ListIP;
 
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
-public class IterativeParallelism implements ListIP {
-
+/**
+ * Implementation of {@code ListIP}, see {@link RangeParallelism} for when the requested number of threads is used.
+ */
+public class IterativeParallelism extends RangeParallelism implements ListIP {
     private final SingleThreadFunctions master = new SingleThreadFunctions();
 
+    public IterativeParallelism() {
+        super(Partitioner.EQUAL);
+    }
+
     @Override
     public String join(int i, List<?> list) throws InterruptedException {
         return concurrentFunction(i, list, master::join, data -> String.join("", data));
@@ -46,25 +51,4 @@ public class IterativeParallelism implements ListIP {
     public <T> boolean any(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
         return concurrentFunction(i, list, data -> master.any(data, predicate), data -> master.any(data, Boolean::booleanValue));
     }
-
-    private <T, S, U> U concurrentFunction(int i, List<? extends T> list, Function<List<? extends T>, S> function, Function<List<? extends S>, U> resultFunction) throws InterruptedException {
-        int size = list.size() / Math.min(i, list.size());
-        int count = (list.size() + size - 1) / size;
-        List<Thread> threads = new ArrayList<>();
-        List<S> results = new ArrayList<>(count);
-        List<List<? extends T>> parts = new ArrayList<>();
-        for (int j = 0; j < count; j++) {
-            parts.add(list.subList(j * size, Math.min(list.size(), (j + 1) * size)));
-        }
-        for (int j = 0; j < count; j++) {
-            final int position = j;
-            results.add(null);
-            threads.add(new Thread(() -> results.set(position, function.apply(parts.get(position)))));
-            threads.get(j).start();
-        }
-        for (int j = 0; j < count; j++) {
-            threads.get(j).join();
-        }
-        return resultFunction.apply(results);
-    }
 }
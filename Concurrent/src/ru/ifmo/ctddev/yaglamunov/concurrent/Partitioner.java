@@ -0,0 +1,51 @@
+package ru.ifmo.ctddev.yaglamunov.concurrent;
+
+/**
+ * Strategy of splitting index range into parts of consecutive indices processed by {@link IterativeParallelism}.
+ * <p>
+ * Parts are claimed by threads dynamically, so producing more parts than threads lets fast threads
+ * take over work of slow ones.
+ */
+public interface Partitioner {
+    /**
+     * One part per thread, sizes differ by at most one.
+     */
+    Partitioner EQUAL = (size, threads) -> bounds(size, Math.min(threads, size));
+
+    /**
+     * Splits range {@code [0, size)} into parts.
+     *
+     * @param size    number of elements.
+     * @param threads number of threads to use.
+     * @return increasing bounds of parts: {@code 0 = bounds[0] < bounds[1] < ... < bounds[parts] = size}.
+     */
+    int[] split(int size, int threads);
+
+    /**
+     * Creates partitioner producing {@code chunksPerThread} parts for every thread.
+     *
+     * @param chunksPerThread number of parts per thread.
+     * @return new partitioner.
+     */
+    static Partitioner chunked(int chunksPerThread) {
+        if (chunksPerThread < 1) {
+            throw new IllegalArgumentException("Chunks per thread must be positive: " + chunksPerThread);
+        }
+        return (size, threads) -> bounds(size, (int) Math.min((long) threads * chunksPerThread, size));
+    }
+
+    /**
+     * Splits range {@code [0, size)} into {@code parts} parts whose sizes differ by at most one.
+     *
+     * @param size  number of elements.
+     * @param parts number of parts, not greater than {@code size}.
+     * @return bounds of parts.
+     */
+    static int[] bounds(int size, int parts) {
+        int[] bounds = new int[parts + 1];
+        for (int k = 1; k <= parts; k++) {
+            bounds[k] = (int) ((long) size * k / parts);
+        }
+        return bounds;
+    }
+}
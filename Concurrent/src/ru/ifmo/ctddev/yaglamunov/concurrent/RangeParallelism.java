@@ -0,0 +1,257 @@
+package ru.ifmo.ctddev.yaglamunov.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Base of list processors applying functions to ranges of indices with the calling thread
+ * and threads of a shared daemon pool.
+ * <p>
+ * Every call first processes a prefix of the range on the calling thread in batches of doubling size and times them,
+ * so the cost of the given function is estimated per call, as the smallest cost per element among the batches,
+ * so that one preempted batch does not decide alone. If the rest is estimated to take less than
+ * {@link #SEQUENTIAL_NANOS}, it is processed by the calling thread too, ignoring the requested number of threads,
+ * since handing it off would cost more. Otherwise the rest is split into parts by the partitioner as soon as
+ * the prefix took {@link #PROBE_NANOS}, so a function that is expensive on every element is timed on a single
+ * element. Calls with one requested thread are processed by the calling thread.
+ */
+abstract class RangeParallelism {
+    /**
+     * Work in nanoseconds below which a range is processed by the calling thread.
+     */
+    static final long SEQUENTIAL_NANOS = 100_000;
+
+    /**
+     * Time in nanoseconds after which the timed prefix is long enough to decide.
+     */
+    static final long PROBE_NANOS = 10_000;
+
+    /**
+     * Strategy of splitting the rest of a range into parts.
+     */
+    final Partitioner partitioner;
+
+    /**
+     * Threads shared by all instances, started on first use.
+     * Idle threads are reused by later calls and terminate after a minute without work.
+     */
+    private static class Pool {
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param partitioner strategy of splitting ranges into parts.
+     */
+    RangeParallelism(Partitioner partitioner) {
+        this.partitioner = partitioner;
+    }
+
+    /**
+     * Function on range of indices {@code [from, to)}.
+     *
+     * @param <S> type of result.
+     */
+    interface RangeFunction<S> {
+        S apply(int from, int to);
+    }
+
+    /**
+     * Results of function on consecutive ranges, and number of threads chosen for the ranges.
+     *
+     * @param <S> type of results.
+     */
+    static class Parts<S> {
+        final List<S> results;
+        final int threads;
+
+        Parts(List<S> results, int threads) {
+            this.results = results;
+            this.threads = threads;
+        }
+    }
+
+    /**
+     * Applies function to parts of the list and combines their results.
+     *
+     * @param i              number of threads to use.
+     * @param list           the list to be processed.
+     * @param function       function to apply on parts of the list.
+     * @param resultFunction function combining results of parts in their order.
+     * @param <T>            type of elements in the list.
+     * @param <S>            type of results of parts.
+     * @param <U>            type of result.
+     * @return combined result.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    <T, S, U> U concurrentFunction(int i, List<? extends T> list, Function<List<? extends T>, S> function, Function<List<? extends S>, U> resultFunction) throws InterruptedException {
+        List<? extends T> source = randomAccess(list);
+        return resultFunction.apply(runRanges(i, source.size(), (from, to) -> function.apply(source.subList(from, to))));
+    }
+
+    /**
+     * Applies function to ranges of {@code [0, size)}, see {@link #parts}.
+     *
+     * @param i        number of threads to use.
+     * @param size     number of elements.
+     * @param function function to apply on ranges.
+     * @param <S>      type of results.
+     * @return list of results in order of ranges, no range is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    <S> List<S> runRanges(int i, int size, RangeFunction<S> function) throws InterruptedException {
+        return parts(i, size, function).results;
+    }
+
+    /**
+     * Applies function to a timed prefix of range {@code [0, size)} on the calling thread, and then to the rest
+     * as a single range on the calling thread if it is estimated to take less than {@link #SEQUENTIAL_NANOS},
+     * or to ranges of the rest chosen by the partitioner otherwise.
+     *
+     * @param i        number of threads to use.
+     * @param size     number of elements.
+     * @param function function to apply on ranges.
+     * @param <S>      type of results.
+     * @return results in order of ranges, no range is empty, and number of threads used.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    <S> Parts<S> parts(int i, int size, RangeFunction<S> function) throws InterruptedException {
+        if (size == 0) {
+            return new Parts<>(Collections.emptyList(), 1);
+        }
+        if (i <= 1 || size == 1) {
+            return new Parts<>(Collections.singletonList(function.apply(0, size)), 1);
+        }
+        List<S> results = new ArrayList<>();
+        double cost = Double.MAX_VALUE;
+        long spent = 0;
+        int done = 0;
+        do {
+            int to = Math.min(size, Math.max(1, 2 * done));
+            long started = System.nanoTime();
+            results.add(function.apply(done, to));
+            long time = Math.max(1, System.nanoTime() - started);
+            cost = Math.min(cost, (double) time / (to - done));
+            spent += time;
+            done = to;
+            if (done == size) {
+                return new Parts<>(results, 1);
+            }
+            if ((size - done) * cost < SEQUENTIAL_NANOS) {
+                results.add(function.apply(done, size));
+                return new Parts<>(results, 1);
+            }
+        } while (spent < PROBE_NANOS);
+
+        int start = done;
+        int[] bounds = partitioner.split(size - start, i);
+        results.addAll(run(i, indices(bounds.length - 1),
+                k -> function.apply(start + bounds[k], start + bounds[k + 1])));
+        return new Parts<>(results, i);
+    }
+
+    /**
+     * Applies function to every part with the calling thread and at most {@code i - 1} pool threads,
+     * each claiming the next unprocessed part when it is done with the previous one.
+     * With one thread or a single part, parts are processed by the calling thread.
+     * If any part fails, no more parts are claimed and pool tasks that have not started are cancelled.
+     *
+     * @param i        number of threads to use.
+     * @param parts    parts to process.
+     * @param function function to apply on parts.
+     * @param <P>      type of parts.
+     * @param <S>      type of results.
+     * @return list of results in order of parts.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    <P, S> List<S> run(int i, List<? extends P> parts, Function<? super P, S> function) throws InterruptedException {
+        if (i <= 1 || parts.size() <= 1) {
+            List<S> results = new ArrayList<>(parts.size());
+            for (P part : parts) {
+                results.add(function.apply(part));
+            }
+            return results;
+        }
+        List<S> results = new ArrayList<>(Collections.nCopies(parts.size(), null));
+        AtomicInteger next = new AtomicInteger();
+        Runnable claimer = () -> {
+            try {
+                for (int position = next.getAndIncrement(); position < parts.size(); position = next.getAndIncrement()) {
+                    results.set(position, function.apply(parts.get(position)));
+                }
+            } catch (Throwable e) {
+                next.set(parts.size());
+                throw e;
+            }
+        };
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int j = 1; j < Math.min(i, parts.size()); j++) {
+                futures.add(Pool.EXECUTOR.submit(claimer));
+            }
+            claimer.run();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw unchecked(e.getCause());
+                }
+            }
+        } finally {
+            next.set(parts.size());
+            futures.forEach(future -> future.cancel(false));
+        }
+        return results;
+    }
+
+    /**
+     * Copies list without constant-time positional access into an array list once,
+     * so that parts do not walk the list from its head.
+     *
+     * @param list the list to be split.
+     * @param <T>  type of elements in the list.
+     * @return {@code list} itself if it is {@link RandomAccess}, or its copy.
+     */
+    static <T> List<? extends T> randomAccess(List<? extends T> list) {
+        return list instanceof RandomAccess ? list : new ArrayList<>(list);
+    }
+
+    /**
+     * Creates list of indices of parts, to be processed instead of parts when part position matters.
+     *
+     * @param parts number of parts.
+     * @return list {@code 0, 1, ..., parts - 1}.
+     */
+    static List<Integer> indices(int parts) {
+        return IntStream.range(0, parts).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Converts cause of a failed task to an exception that can be rethrown by the caller.
+     *
+     * @param cause cause of failure.
+     * @return {@code cause} itself if it is unchecked, or wrapping exception otherwise.
+     */
+    static RuntimeException unchecked(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+}
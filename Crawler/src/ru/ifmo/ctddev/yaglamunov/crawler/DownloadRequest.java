@@ -22,9 +22,7 @@ class DownloadRequest extends Request {
         this.url = url;
         status.addTask();
         currentDepth++;
-        synchronized (requestedUrls) {
-            requestedUrls.add(url);
-        }
+        requestedUrls.add(url);
     }
 
     /**
@@ -1,10 +1,10 @@
 package ru.ifmo.ctddev.yaglamunov.crawler;
 
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains general information about request to {@code WebCrawler}: it's status,
@@ -31,7 +31,7 @@ class Request {
         this.maxDepth = maxDepth;
         this.currentDepth = 0;
         status = new Status();
-        requestedUrls = new HashSet<>();
+        requestedUrls = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -48,14 +48,13 @@ class Request {
         requestedUrls = other.requestedUrls;
     }
 
+    /**
+     * Marks URL as requested.
+     *
+     * @param url URL to request
+     * @return true if URL was not requested before
+     */
     public boolean requestUrl(String url) {
-        synchronized (requestedUrls) {
-            if (!requestedUrls.contains(url)) {
-                requestedUrls.add(url);
-                return true;
-            } else {
-                return false;
-            }
-        }
+        return requestedUrls.add(url);
     }
 }
@@ -23,7 +23,7 @@ public class WebCrawler implements Crawler {
     /**
      * Map between urls and their {@link Host} object
      */
-    private final Map<String, Host> hosts = new HashMap<>();
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
 
     /**
      * Thread pools for downloaders and extractors
@@ -44,13 +44,7 @@ public class WebCrawler implements Crawler {
      * @throws MalformedURLException wrong URL provided
      */
     private Host getHost(String url) throws MalformedURLException {
-        String hostUrl = URLUtils.getHost(url);
-        synchronized (hosts) {
-            if (!hosts.containsKey(hostUrl)) {
-                hosts.put(hostUrl, new Host());
-            }
-            return hosts.get(hostUrl);
-        }
+        return hosts.computeIfAbsent(URLUtils.getHost(url), hostUrl -> new Host());
     }
 
     /**
@@ -83,9 +77,7 @@ public class WebCrawler implements Crawler {
 
         Request request = new Request(result, errors, depth);
         try {
-            synchronized (downloadPool) {
-                downloadPool.execute(new Loader(downloader, new DownloadRequest(request, url)));
-            }
+            downloadPool.execute(new Loader(downloader, new DownloadRequest(request, url)));
             request.status.waitFinish();
         } catch (InterruptedException e) {
             return null;
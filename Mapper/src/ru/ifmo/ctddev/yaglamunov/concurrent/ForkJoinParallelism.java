@@ -0,0 +1,374 @@
+package ru.ifmo.ctddev.yaglamunov.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Implementation of {@code ListIP} on top of {@link ForkJoinPool}.
+ * <p>
+ * Lists are halved recursively until parts are not larger than the granularity, nor than {@code ceil(size / i)}
+ * elements, so that short lists of expensive elements are still spread over threads, and partial results
+ * are combined up the tree by the same pool. Calls made from a task of a fork/join pool run in that pool,
+ * so nested calls share its threads instead of starting new ones.
+ * {@code filter} and {@code join} combine parts as a tree of segments in constant time
+ * and copy segments into the presized result in parallel.
+ * <p>
+ * The number of threads {@code i} limits the number of parts to {@code 4 * i}, not the number of threads:
+ * parts are run by as many threads of the pool as are free. The only exception is {@code i = 1},
+ * where the whole list is processed by the calling thread.
+ */
+public class ForkJoinParallelism implements ListIP {
+    /**
+     * Default minimal number of elements processed without splitting, unless there are fewer per thread.
+     */
+    public static final int DEFAULT_GRANULARITY = 1 << 10;
+
+    /**
+     * Number of parts per thread the list is split into at most.
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int granularity;
+
+    /**
+     * Objects with single thread functions
+     */
+    private final SingleThreadFunctions master = new SingleThreadFunctions();
+
+    /**
+     * Creates an instance of {@code ForkJoinParallelism} working in the common pool with default granularity.
+     */
+    public ForkJoinParallelism() {
+        this(ForkJoinPool.commonPool(), DEFAULT_GRANULARITY);
+    }
+
+    /**
+     * Creates an instance of {@code ForkJoinParallelism}.
+     *
+     * @param pool        pool to run top-level calls in.
+     * @param granularity minimal number of elements processed without splitting, unless there are fewer per thread.
+     */
+    public ForkJoinParallelism(ForkJoinPool pool, int granularity) {
+        if (granularity < 1) {
+            throw new IllegalArgumentException("Granularity must be positive: " + granularity);
+        }
+        this.pool = pool;
+        this.granularity = granularity;
+    }
+
+    /**
+     * Segments of a result combined in constant time: either a leaf or a concatenation of two segments.
+     *
+     * @param <L> type of leaves.
+     */
+    private static class Segment<L> {
+        private final L leaf;
+        private final Segment<L> left;
+        private final Segment<L> right;
+        private final long size;
+
+        Segment(L leaf, long size) {
+            this.leaf = leaf;
+            this.left = null;
+            this.right = null;
+            this.size = size;
+        }
+
+        Segment(Segment<L> left, Segment<L> right) {
+            this.leaf = null;
+            this.left = left;
+            this.right = right;
+            this.size = left.size + right.size;
+        }
+    }
+
+    /**
+     * Writes leaves of segment tree to their offsets, forking for both halves of every concatenation.
+     *
+     * @param <L> type of leaves.
+     */
+    private static class Flatten<L> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Segment<L> segment;
+        private final int offset;
+        private final ObjIntConsumer<L> writer;
+
+        Flatten(Segment<L> segment, int offset, ObjIntConsumer<L> writer) {
+            this.segment = segment;
+            this.offset = offset;
+            this.writer = writer;
+        }
+
+        @Override
+        protected void compute() {
+            if (segment.leaf != null) {
+                writer.accept(segment.leaf, offset);
+            } else {
+                invokeAll(new Flatten<>(segment.left, offset, writer),
+                        new Flatten<>(segment.right, offset + (int) segment.left.size, writer));
+            }
+        }
+    }
+
+    /**
+     * Function on range of indices {@code [from, to)}.
+     *
+     * @param <R> type of result.
+     */
+    private interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    /**
+     * Applies function to ranges not larger than threshold and combines results pairwise.
+     *
+     * @param <R> type of results.
+     */
+    private static class Reduction<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final RangeFunction<R> function;
+        private final BinaryOperator<R> combiner;
+
+        Reduction(int from, int to, int threshold, RangeFunction<R> function, BinaryOperator<R> combiner) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.function = function;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= threshold) {
+                return function.apply(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Reduction<R> left = new Reduction<>(from, middle, threshold, function, combiner);
+            Reduction<R> right = new Reduction<>(middle, to, threshold, function, combiner);
+            left.fork();
+            R rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+
+    /**
+     * Runs task in the calling thread if only one thread may be used, in the current fork/join pool if called
+     * from one, or in the pool of this instance otherwise.
+     *
+     * @param i    number of threads to use.
+     * @param task task to run, must not fork if {@code i} is {@code 1}.
+     */
+    private <R> R invoke(int i, ForkJoinTask<R> task) {
+        return i <= 1 || ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+    }
+
+    /**
+     * Applies function to ranges of indices and combines results up the tree.
+     *
+     * @param i        number of threads to use, at most {@code 4 * i} ranges of at most {@code ceil(size / i)}
+     *                 elements are created, or one for a single thread.
+     * @param size     number of indices.
+     * @param function function to apply on ranges.
+     * @param combiner associative function combining results of adjacent ranges.
+     * @param <R>      type of results.
+     * @return combined result.
+     */
+    private <R> R reduce(int i, int size, RangeFunction<R> function, BinaryOperator<R> combiner) {
+        if (i <= 1) {
+            return invoke(i, new Reduction<>(0, size, Math.max(1, size), function, combiner));
+        }
+        int parts = i * PARTS_PER_THREAD;
+        int perThread = Math.max(1, (size + i - 1) / i);
+        int threshold = Math.min(perThread, Math.max(granularity, (size + parts - 1) / parts));
+        return invoke(i, new Reduction<>(0, size, threshold, function, combiner));
+    }
+
+    /**
+     * Applies function to parts of the list and combines results up the tree.
+     *
+     * @param i        number of threads to use.
+     * @param list     the list to be processed.
+     * @param function function to apply on parts.
+     * @param combiner associative function combining results of adjacent parts.
+     * @param <T>      type of elements in the list.
+     * @param <R>      type of results.
+     * @return combined result.
+     */
+    private <T, R> R reduce(int i, List<? extends T> list, Function<List<? extends T>, R> function,
+                            BinaryOperator<R> combiner) {
+        List<? extends T> source = randomAccess(list);
+        return reduce(i, source.size(), (from, to) -> function.apply(source.subList(from, to)), combiner);
+    }
+
+    /**
+     * Copies list without constant-time positional access into an array list once.
+     */
+    private static <T> List<? extends T> randomAccess(List<? extends T> list) {
+        return list instanceof RandomAccess ? list : new ArrayList<>(list);
+    }
+
+    /**
+     * Concatenates list elements into a string.
+     * <p>
+     * Leaves convert their elements to strings and count their length, then every leaf copies its strings
+     * straight into its range of the buffer allocated once at the exact size.
+     *
+     * @param i    number of threads to use.
+     * @param list the list to be joined.
+     * @return Concatenated string representations of list elements.
+     */
+    @Override
+    public String join(int i, List<?> list) {
+        Segment<SingleThreadFunctions.Strings> segments = reduce(i, list, data -> {
+            SingleThreadFunctions.Strings strings = master.toStrings(data);
+            return new Segment<>(strings, strings.length);
+        }, Segment::new);
+        if (segments.size > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Joined string is too long: " + segments.size);
+        }
+        char[] result = new char[(int) segments.size];
+        invoke(i, new Flatten<>(segments, 0, (strings, offset) -> master.copy(strings, result, offset)));
+        return new String(result);
+    }
+
+    /**
+     * Filters given list by predicate and returns filtered list.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be filtered.
+     * @param predicate predicate to test list elements with.
+     * @param <T>       type of elements in the list.
+     * @return list consisting of elements of given list which satisfy the predicate.
+     */
+    @Override
+    public <T> List<T> filter(int i, List<? extends T> list, Predicate<? super T> predicate) {
+        Segment<List<T>> segments = reduce(i, list, data -> {
+            List<T> leaf = new ArrayList<>();
+            for (T value : data) {
+                if (predicate.test(value)) {
+                    leaf.add(value);
+                }
+            }
+            return new Segment<>(leaf, leaf.size());
+        }, Segment::new);
+        List<T> result = new ArrayList<>(Collections.nCopies((int) segments.size, null));
+        invoke(i, new Flatten<>(segments, 0, (leaf, offset) -> {
+            for (int j = 0; j < leaf.size(); j++) {
+                result.set(offset + j, leaf.get(j));
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Applies given function on every element of list, and creates list of results of function applications.
+     * Every part writes its results directly to their positions in the resulting list.
+     *
+     * @param i        number of threads to use.
+     * @param list     the list to be mapped.
+     * @param function function to apply on list elements.
+     * @param <T>      type of elements of the initial list.
+     * @param <U>      type of elements of the resulting list.
+     * @return list of results of function applications.
+     */
+    @Override
+    public <T, U> List<U> map(int i, List<? extends T> list, Function<? super T, ? extends U> function) {
+        List<? extends T> source = randomAccess(list);
+        List<U> result = new ArrayList<>(Collections.nCopies(source.size(), null));
+        this.<Void>reduce(i, source.size(), (from, to) -> {
+            for (int index = from; index < to; index++) {
+                result.set(index, function.apply(source.get(index)));
+            }
+            return null;
+        }, (a, b) -> null);
+        return result;
+    }
+
+    /**
+     * Finds maximum element in the list.
+     *
+     * @param i          number of threads to use.
+     * @param list       the list to be searched.
+     * @param comparator comparator to be used for searching.
+     * @param <T>        type of elements in the list.
+     * @return maximum of list.
+     * @throws NoSuchElementException if list is empty.
+     */
+    @Override
+    public <T> T maximum(int i, List<? extends T> list, Comparator<? super T> comparator) {
+        return this.<T, T>reduce(i, list, data -> Collections.max(data, comparator),
+                (a, b) -> comparator.compare(a, b) >= 0 ? a : b);
+    }
+
+    /**
+     * Finds minimum element in the list.
+     *
+     * @param i          number of threads to use.
+     * @param list       the list to be searched.
+     * @param comparator comparator to be used for searching.
+     * @param <T>        type of elements in the list.
+     * @return minimum of list.
+     * @throws NoSuchElementException if list is empty.
+     */
+    @Override
+    public <T> T minimum(int i, List<? extends T> list, Comparator<? super T> comparator) {
+        return this.<T, T>reduce(i, list, data -> Collections.min(data, comparator),
+                (a, b) -> comparator.compare(a, b) <= 0 ? a : b);
+    }
+
+    /**
+     * Tests if all list elements satisfy the predicate.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be tested.
+     * @param predicate predicate to test with.
+     * @param <T>       type of elements in the list.
+     * @return {@code true} if all elements of the list satisfy predicate, {@code false} otherwise.
+     */
+    @Override
+    public <T> boolean all(int i, List<? extends T> list, Predicate<? super T> predicate) {
+        return !any(i, list, predicate.negate());
+    }
+
+    /**
+     * Tests if any list element satisfies the predicate. Parts are skipped as soon as one is found.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be tested.
+     * @param predicate predicate to test with.
+     * @param <T>       type of elements in the list.
+     * @return {@code true} if any element of the list satisfies predicate, {@code false} otherwise.
+     */
+    @Override
+    public <T> boolean any(int i, List<? extends T> list, Predicate<? super T> predicate) {
+        AtomicBoolean found = new AtomicBoolean();
+        this.<T, Boolean>reduce(i, list, data -> {
+            for (T value : data) {
+                if (found.get()) {
+                    break;
+                }
+                if (predicate.test(value)) {
+                    found.set(true);
+                }
+            }
+            return null;
+        }, (a, b) -> null);
+        return found.get();
+    }
+}
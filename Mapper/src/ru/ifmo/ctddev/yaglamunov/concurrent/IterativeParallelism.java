@@ -3,16 +3,19 @@ package ru.ifmo.ctddev.yaglamunov.concurrent;
 import info.kgeorgiy.java.advanced.concurrent.ListIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
 
 /**
  * Implementation of class {@code ListIP}
+ * <p>
+ * Without {@link ParallelMapper} parts are processed by the calling thread and threads of a shared daemon pool.
+ * See {@link RangeParallelism} for when the requested number of threads is used.
  */
-public class IterativeParallelism implements ListIP {
+public class IterativeParallelism extends RangeParallelism implements ListIP {
     private final ParallelMapper parallelMapper;
 
     /**
@@ -24,7 +27,16 @@ public class IterativeParallelism implements ListIP {
      * Creates an instance of {@code IterativeParallelism}.
      */
     public IterativeParallelism() {
-        parallelMapper = null;
+        this(null, Partitioner.EQUAL);
+    }
+
+    /**
+     * Creates an instance of {@code IterativeParallelism}.
+     *
+     * @param partitioner strategy of splitting lists into parts.
+     */
+    public IterativeParallelism(Partitioner partitioner) {
+        this(null, partitioner);
     }
 
     /**
@@ -33,11 +45,25 @@ public class IterativeParallelism implements ListIP {
      * @param parallelMapper {@link ParallelMapper} to be used for concurrency.
      */
     public IterativeParallelism(ParallelMapper parallelMapper) {
+        this(parallelMapper, Partitioner.EQUAL);
+    }
+
+    /**
+     * Creates an instance of {@link IterativeParallelism}.
+     *
+     * @param parallelMapper {@link ParallelMapper} to be used for concurrency, or {@code null} to create threads.
+     * @param partitioner    strategy of splitting lists into parts.
+     */
+    public IterativeParallelism(ParallelMapper parallelMapper, Partitioner partitioner) {
+        super(partitioner);
         this.parallelMapper = parallelMapper;
     }
 
     /**
      * Concatenates list elements into a string.
+     * <p>
+     * Parts convert their elements to strings and count their length first, then the result buffer
+     * is allocated once at the exact size and every part copies its strings into its own range of the buffer.
      *
      * @param i    number of threads to use.
      * @param list the list to be joined.
@@ -46,7 +72,22 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public String join(int i, List<?> list) throws InterruptedException {
-        return concurrentFunction(i, list, master::join, data -> String.join("", data));
+        List<?> source = randomAccess(list);
+        Parts<SingleThreadFunctions.Strings> strings = parts(i, source.size(),
+                (from, to) -> master.toStrings(source.subList(from, to)));
+        List<SingleThreadFunctions.Strings> parts = strings.results;
+        List<Integer> offsets = new ArrayList<>(parts.size());
+        long length = 0;
+        for (SingleThreadFunctions.Strings part : parts) {
+            offsets.add((int) length);
+            length += part.length;
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("Joined string is too long: " + length);
+            }
+        }
+        char[] result = new char[(int) length];
+        run(strings.threads, indices(parts.size()), k -> master.copy(parts.get(k), result, offsets.get(k)));
+        return new String(result);
     }
 
     /**
@@ -122,7 +163,7 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean all(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
-        return concurrentFunction(i, list, data -> master.all(data, predicate), data -> master.all(data, Boolean::booleanValue));
+        return !any(i, list, predicate.negate());
     }
 
     /**
@@ -137,47 +178,632 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean any(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
-        return concurrentFunction(i, list, data -> master.any(data, predicate), data -> master.any(data, Boolean::booleanValue));
+        AtomicBoolean found = new AtomicBoolean();
+        List<? extends T> source = randomAccess(list);
+        runRanges(i, source.size(), (from, to) -> master.any(source.subList(from, to), predicate, found));
+        return found.get();
     }
 
     /**
-     * Applies given function on every element of list and reduces answer with another function
+     * Finds the first list element satisfying the predicate.
+     * Threads stop as soon as an earlier satisfying element is known.
      *
-     * @param i              number of threads to use.
-     * @param list           the list to be mapped.
-     * @param function       function to apply on list elements.
-     * @param resultFunction function to reduce answer
-     * @param <T>            type of elements of the initial list.
-     * @param <U>            type of elements of the resulting list.
-     * @return list of results of function applications.
+     * @param i         number of threads to use.
+     * @param list      the list to be searched.
+     * @param predicate predicate to test with.
+     * @param <T>       type of elements in the list.
+     * @return first element satisfying the predicate, or empty {@code Optional} if there is none.
+     * @throws InterruptedException if one of created threads was interrupted.
+     * @throws NullPointerException if the found element is {@code null}.
+     */
+    public <T> Optional<T> findFirst(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
+        List<? extends T> source = randomAccess(list);
+        AtomicInteger best = new AtomicInteger(Integer.MAX_VALUE);
+        runRanges(i, source.size(), (from, to) -> master.findFirst(source.subList(from, to), from, predicate, best));
+        return best.get() == Integer.MAX_VALUE ? Optional.empty() : Optional.of(source.get(best.get()));
+    }
+
+    /**
+     * Finds any list element satisfying the predicate. Threads stop as soon as one is found.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be searched.
+     * @param predicate predicate to test with.
+     * @param <T>       type of elements in the list.
+     * @return element satisfying the predicate, or empty {@code Optional} if there is none.
+     * @throws InterruptedException if one of created threads was interrupted.
+     * @throws NullPointerException if the found element is {@code null}.
+     */
+    public <T> Optional<T> findAny(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
+        List<? extends T> source = randomAccess(list);
+        AtomicInteger found = new AtomicInteger(-1);
+        runRanges(i, source.size(), (from, to) -> master.findAny(source.subList(from, to), from, predicate, found));
+        return found.get() < 0 ? Optional.empty() : Optional.of(source.get(found.get()));
+    }
+
+    /**
+     * Reduces list elements with associative operation.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be reduced.
+     * @param identity  identity of the operation.
+     * @param operation associative operation.
+     * @param <T>       type of elements in the list.
+     * @return reduced value, or {@code identity} if list is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <T> T reduce(int i, List<? extends T> list, T identity, BinaryOperator<T> operation) throws InterruptedException {
+        return mapReduce(i, list, Function.<T>identity(), Monoid.of(identity, operation));
+    }
+
+    /**
+     * Applies function on every element of list and combines results with monoid operation.
+     *
+     * @param i      number of threads to use.
+     * @param list   the list to be reduced.
+     * @param lift   function to apply on list elements.
+     * @param monoid monoid to combine results with.
+     * @param <T>    type of elements in the list.
+     * @param <R>    type of results.
+     * @return combined results, or identity if list is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <T, R> R mapReduce(int i, List<? extends T> list, Function<? super T, ? extends R> lift, Monoid<R> monoid) throws InterruptedException {
+        return concurrentFunction(i, list, data -> master.mapReduce(data, lift, monoid), data -> master.mapReduce(data, Function.identity(), monoid));
+    }
+
+    /**
+     * Sums values of function on list elements without boxing them.
+     *
+     * @param i        number of threads to use.
+     * @param list     the list to be summed.
+     * @param function function to apply on list elements.
+     * @param <T>      type of elements in the list.
+     * @return sum of function values.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <T> long sum(int i, List<? extends T> list, ToLongFunction<? super T> function) throws InterruptedException {
+        return concurrentFunction(i, list, data -> master.sum(data, function), data -> master.sum(data, Long::longValue));
+    }
+
+    /**
+     * Sums values of function on list elements without boxing them.
+     *
+     * @param i        number of threads to use.
+     * @param list     the list to be summed.
+     * @param function function to apply on list elements.
+     * @param <T>      type of elements in the list.
+     * @return sum of function values.
      * @throws InterruptedException if one of created threads was interrupted.
      */
-    private <T, S, U> U concurrentFunction(int i, List<? extends T> list, Function<List<? extends T>, S> function, Function<List<? extends S>, U> resultFunction) throws InterruptedException {
-        int partCount = Math.min(i, list.size());
-        List<Thread> threads = new ArrayList<>();
-        List<S> results = new ArrayList<>(partCount);
-        List<List<? extends T>> parts = new ArrayList<>();
+    public <T> double sumDouble(int i, List<? extends T> list, ToDoubleFunction<? super T> function) throws InterruptedException {
+        return concurrentFunction(i, list, data -> master.sumDouble(data, function), data -> master.sumDouble(data, Double::doubleValue));
+    }
 
-        double step = list.size() / (double) partCount;
-        for (double to = step, from = 0; from < list.size(); to += step) {
-            int ito = (int) Math.floor(to);
-            parts.add(list.subList((int) from, Math.min(ito, list.size())));
-            from = ito;
+    /**
+     * Counts list elements satisfying the predicate.
+     *
+     * @param i         number of threads to use.
+     * @param list      the list to be tested.
+     * @param predicate predicate to test with.
+     * @param <T>       type of elements in the list.
+     * @return number of satisfying elements.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <T> long count(int i, List<? extends T> list, Predicate<? super T> predicate) throws InterruptedException {
+        return concurrentFunction(i, list, data -> master.count(data, predicate), data -> master.sum(data, Long::longValue));
+    }
+
+    /**
+     * Counts list elements in every bucket.
+     *
+     * @param i       number of threads to use.
+     * @param list    the list to be counted.
+     * @param bucket  function returning bucket of element, in range {@code [0, buckets)}.
+     * @param buckets number of buckets.
+     * @param <T>     type of elements in the list.
+     * @return array of counts indexed by bucket.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <T> long[] histogram(int i, List<? extends T> list, ToIntFunction<? super T> bucket, int buckets) throws InterruptedException {
+        return concurrentFunction(i, list, data -> master.histogram(data, bucket, buckets), data -> {
+            long[] result = new long[buckets];
+            for (long[] part : data) {
+                for (int j = 0; j < buckets; j++) {
+                    result[j] += part[j];
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Finds maximum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return maximum of array, or empty {@code OptionalInt} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalInt maximum(int i, int[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::max), Math::max)
+                .map(OptionalInt::of).orElse(OptionalInt.empty());
+    }
+
+    /**
+     * Finds minimum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return minimum of array, or empty {@code OptionalInt} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalInt minimum(int i, int[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::min), Math::min)
+                .map(OptionalInt::of).orElse(OptionalInt.empty());
+    }
+
+    /**
+     * Filters given array by predicate.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be filtered.
+     * @param predicate predicate to test elements with.
+     * @return array consisting of elements of given array which satisfy the predicate.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public int[] filter(int i, int[] values, IntPredicate predicate) throws InterruptedException {
+        return concatRanges(i, values.length, (from, to) -> filter(values, from, to, predicate), int[]::new);
+    }
+
+    /**
+     * Applies given function on every element of array. Parts write results directly into the resulting array.
+     *
+     * @param i        number of threads to use.
+     * @param values   the array to be mapped.
+     * @param function function to apply on elements.
+     * @return array of results of function applications.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public int[] map(int i, int[] values, IntUnaryOperator function) throws InterruptedException {
+        int[] result = new int[values.length];
+        forEachIndex(i, values.length, j -> result[j] = function.applyAsInt(values[j]));
+        return result;
+    }
+
+    /**
+     * Tests if any array element satisfies the predicate. Threads stop as soon as one is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if any element of the array satisfies predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean any(int i, int[] values, IntPredicate predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        runRanges(i, values.length, (from, to) -> anyMatch(values, from, to, predicate, found));
+        return found.get();
+    }
+
+    /**
+     * Tests if all array elements satisfy the predicate. Threads stop as soon as a counterexample is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if all elements of the array satisfy predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean all(int i, int[] values, IntPredicate predicate) throws InterruptedException {
+        return !any(i, values, predicate.negate());
+    }
+
+    /**
+     * Sums array elements.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be summed.
+     * @return sum of elements.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public long sum(int i, int[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> {
+            long sum = 0;
+            for (int j = from; j < to; j++) {
+                sum += values[j];
+            }
+            return sum;
+        }, Long::sum).orElse(0L);
+    }
+
+    /**
+     * Finds maximum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return maximum of array, or empty {@code OptionalLong} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalLong maximum(int i, long[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::max), Math::max)
+                .map(OptionalLong::of).orElse(OptionalLong.empty());
+    }
+
+    /**
+     * Finds minimum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return minimum of array, or empty {@code OptionalLong} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalLong minimum(int i, long[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::min), Math::min)
+                .map(OptionalLong::of).orElse(OptionalLong.empty());
+    }
+
+    /**
+     * Filters given array by predicate.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be filtered.
+     * @param predicate predicate to test elements with.
+     * @return array consisting of elements of given array which satisfy the predicate.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public long[] filter(int i, long[] values, LongPredicate predicate) throws InterruptedException {
+        return concatRanges(i, values.length, (from, to) -> filter(values, from, to, predicate), long[]::new);
+    }
+
+    /**
+     * Applies given function on every element of array. Parts write results directly into the resulting array.
+     *
+     * @param i        number of threads to use.
+     * @param values   the array to be mapped.
+     * @param function function to apply on elements.
+     * @return array of results of function applications.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public long[] map(int i, long[] values, LongUnaryOperator function) throws InterruptedException {
+        long[] result = new long[values.length];
+        forEachIndex(i, values.length, j -> result[j] = function.applyAsLong(values[j]));
+        return result;
+    }
+
+    /**
+     * Tests if any array element satisfies the predicate. Threads stop as soon as one is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if any element of the array satisfies predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean any(int i, long[] values, LongPredicate predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        runRanges(i, values.length, (from, to) -> anyMatch(values, from, to, predicate, found));
+        return found.get();
+    }
+
+    /**
+     * Tests if all array elements satisfy the predicate. Threads stop as soon as a counterexample is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if all elements of the array satisfy predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean all(int i, long[] values, LongPredicate predicate) throws InterruptedException {
+        return !any(i, values, predicate.negate());
+    }
+
+    /**
+     * Sums array elements.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be summed.
+     * @return sum of elements.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public long sum(int i, long[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Long::sum), Long::sum).orElse(0L);
+    }
+
+    /**
+     * Finds maximum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return maximum of array, or empty {@code OptionalDouble} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalDouble maximum(int i, double[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::max), Math::max)
+                .map(OptionalDouble::of).orElse(OptionalDouble.empty());
+    }
+
+    /**
+     * Finds minimum element in the array.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be searched.
+     * @return minimum of array, or empty {@code OptionalDouble} if array is empty.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public OptionalDouble minimum(int i, double[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Math::min), Math::min)
+                .map(OptionalDouble::of).orElse(OptionalDouble.empty());
+    }
+
+    /**
+     * Filters given array by predicate.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be filtered.
+     * @param predicate predicate to test elements with.
+     * @return array consisting of elements of given array which satisfy the predicate.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public double[] filter(int i, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return concatRanges(i, values.length, (from, to) -> filter(values, from, to, predicate), double[]::new);
+    }
+
+    /**
+     * Applies given function on every element of array. Parts write results directly into the resulting array.
+     *
+     * @param i        number of threads to use.
+     * @param values   the array to be mapped.
+     * @param function function to apply on elements.
+     * @return array of results of function applications.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public double[] map(int i, double[] values, DoubleUnaryOperator function) throws InterruptedException {
+        double[] result = new double[values.length];
+        forEachIndex(i, values.length, j -> result[j] = function.applyAsDouble(values[j]));
+        return result;
+    }
+
+    /**
+     * Tests if any array element satisfies the predicate. Threads stop as soon as one is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if any element of the array satisfies predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean any(int i, double[] values, DoublePredicate predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        runRanges(i, values.length, (from, to) -> anyMatch(values, from, to, predicate, found));
+        return found.get();
+    }
+
+    /**
+     * Tests if all array elements satisfy the predicate. Threads stop as soon as a counterexample is found.
+     *
+     * @param i         number of threads to use.
+     * @param values    the array to be tested.
+     * @param predicate predicate to test with.
+     * @return {@code true} if all elements of the array satisfy predicate, {@code false} otherwise.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public boolean all(int i, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return !any(i, values, predicate.negate());
+    }
+
+    /**
+     * Sums array elements.
+     *
+     * @param i      number of threads to use.
+     * @param values the array to be summed.
+     * @return sum of elements.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public double sum(int i, double[] values) throws InterruptedException {
+        return reduceRanges(i, values.length, (from, to) -> fold(values, from, to, Double::sum), Double::sum).orElse(0.0);
+    }
+
+    /**
+     * Starts a lazy pipeline over the list. Stages added to the pipeline are fused
+     * and applied in a single pass when a terminal operation is called.
+     *
+     * @param i    number of threads to use.
+     * @param list source list.
+     * @param <T>  type of elements in the list.
+     * @return pipeline producing elements of the list.
+     */
+    public <T> Pipeline<T> pipeline(int i, List<? extends T> list) {
+        return Pipeline.of(this, i, list);
+    }
+
+    /**
+     * Applies function to ranges of {@code [0, length)} and combines their results in order.
+     *
+     * @param i        number of threads to use.
+     * @param length   number of indices.
+     * @param function function to apply on ranges.
+     * @param combiner associative function combining results of adjacent ranges.
+     * @param <S>      type of results.
+     * @return combined result, or empty {@code Optional} if {@code length} is zero.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    private <S> Optional<S> reduceRanges(int i, int length, RangeFunction<S> function, BinaryOperator<S> combiner) throws InterruptedException {
+        return runRanges(i, length, function).stream().reduce(combiner);
+    }
+
+    /**
+     * Applies function returning arrays to ranges of {@code [0, length)} and concatenates the arrays in order.
+     *
+     * @param i        number of threads to use.
+     * @param length   number of indices.
+     * @param function function returning array for a range.
+     * @param newArray creates array of given length.
+     * @param <A>      type of arrays.
+     * @return concatenation of arrays.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    private <A> A concatRanges(int i, int length, RangeFunction<A> function, IntFunction<A> newArray) throws InterruptedException {
+        List<A> parts = runRanges(i, length, function);
+        A result = newArray.apply(parts.stream().mapToInt(Array::getLength).sum());
+        int offset = 0;
+        for (A part : parts) {
+            int size = Array.getLength(part);
+            System.arraycopy(part, 0, result, offset, size);
+            offset += size;
+        }
+        return result;
+    }
+
+    /**
+     * Applies action to every index of {@code [0, length)}.
+     *
+     * @param i      number of threads to use.
+     * @param length number of indices.
+     * @param action action to apply on indices.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    private void forEachIndex(int i, int length, IntConsumer action) throws InterruptedException {
+        runRanges(i, length, (from, to) -> {
+            for (int j = from; j < to; j++) {
+                action.accept(j);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Combines elements of non-empty range {@code [from, to)} of the array from left to right.
+     */
+    private static int fold(int[] values, int from, int to, IntBinaryOperator operator) {
+        int result = values[from];
+        for (int j = from + 1; j < to; j++) {
+            result = operator.applyAsInt(result, values[j]);
         }
+        return result;
+    }
 
-        if (parallelMapper == null) {
-            for (int j = 0; j < partCount; j++) {
-                final int position = j;
-                results.add(null);
-                threads.add(new Thread(() -> results.set(position, function.apply(parts.get(position)))));
-                threads.get(j).start();
+    /**
+     * Copies elements of range {@code [from, to)} of the array that satisfy the predicate.
+     */
+    private static int[] filter(int[] values, int from, int to, IntPredicate predicate) {
+        int[] part = new int[to - from];
+        int size = 0;
+        for (int j = from; j < to; j++) {
+            if (predicate.test(values[j])) {
+                part[size++] = values[j];
             }
-            for (int j = 0; j < partCount; j++) {
-                threads.get(j).join();
+        }
+        return Arrays.copyOf(part, size);
+    }
+
+    /**
+     * Tests elements of range {@code [from, to)} of the array until one satisfies the predicate
+     * or {@code found} is set, and sets {@code found} if one does.
+     */
+    private static boolean anyMatch(int[] values, int from, int to, IntPredicate predicate, AtomicBoolean found) {
+        for (int j = from; j < to && !found.get(); j++) {
+            if (predicate.test(values[j])) {
+                found.set(true);
             }
-            return resultFunction.apply(results);
-        } else {
-            return resultFunction.apply(parallelMapper.map(function, parts));
         }
+        return found.get();
+    }
+
+    /**
+     * Combines elements of non-empty range {@code [from, to)} of the array from left to right.
+     */
+    private static long fold(long[] values, int from, int to, LongBinaryOperator operator) {
+        long result = values[from];
+        for (int j = from + 1; j < to; j++) {
+            result = operator.applyAsLong(result, values[j]);
+        }
+        return result;
+    }
+
+    /**
+     * Copies elements of range {@code [from, to)} of the array that satisfy the predicate.
+     */
+    private static long[] filter(long[] values, int from, int to, LongPredicate predicate) {
+        long[] part = new long[to - from];
+        int size = 0;
+        for (int j = from; j < to; j++) {
+            if (predicate.test(values[j])) {
+                part[size++] = values[j];
+            }
+        }
+        return Arrays.copyOf(part, size);
+    }
+
+    /**
+     * Tests elements of range {@code [from, to)} of the array until one satisfies the predicate
+     * or {@code found} is set, and sets {@code found} if one does.
+     */
+    private static boolean anyMatch(long[] values, int from, int to, LongPredicate predicate, AtomicBoolean found) {
+        for (int j = from; j < to && !found.get(); j++) {
+            if (predicate.test(values[j])) {
+                found.set(true);
+            }
+        }
+        return found.get();
+    }
+
+    /**
+     * Combines elements of non-empty range {@code [from, to)} of the array from left to right.
+     */
+    private static double fold(double[] values, int from, int to, DoubleBinaryOperator operator) {
+        double result = values[from];
+        for (int j = from + 1; j < to; j++) {
+            result = operator.applyAsDouble(result, values[j]);
+        }
+        return result;
+    }
+
+    /**
+     * Copies elements of range {@code [from, to)} of the array that satisfy the predicate.
+     */
+    private static double[] filter(double[] values, int from, int to, DoublePredicate predicate) {
+        double[] part = new double[to - from];
+        int size = 0;
+        for (int j = from; j < to; j++) {
+            if (predicate.test(values[j])) {
+                part[size++] = values[j];
+            }
+        }
+        return Arrays.copyOf(part, size);
+    }
+
+    /**
+     * Tests elements of range {@code [from, to)} of the array until one satisfies the predicate
+     * or {@code found} is set, and sets {@code found} if one does.
+     */
+    private static boolean anyMatch(double[] values, int from, int to, DoublePredicate predicate, AtomicBoolean found) {
+        for (int j = from; j < to && !found.get(); j++) {
+            if (predicate.test(values[j])) {
+                found.set(true);
+            }
+        }
+        return found.get();
+    }
+
+    /**
+     * Applies function to every part with {@link ParallelMapper} if it is given and more than one thread is requested,
+     * or as {@link RangeParallelism#run} does otherwise.
+     *
+     * @param i        number of threads to use.
+     * @param parts    parts to process.
+     * @param function function to apply on parts.
+     * @param <P>      type of parts.
+     * @param <S>      type of results.
+     * @return list of results in order of parts.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    @Override
+    <P, S> List<S> run(int i, List<? extends P> parts, Function<? super P, S> function) throws InterruptedException {
+        if (parallelMapper != null && i > 1 && parts.size() > 1) {
+            return parallelMapper.map(function, parts);
+        }
+        return super.run(i, parts, function);
     }
 }
@@ -0,0 +1,48 @@
+package ru.ifmo.ctddev.yaglamunov.concurrent;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Associative operation with identity element, used to combine results of list parts in any grouping.
+ *
+ * @param <T> type of values.
+ */
+public interface Monoid<T> {
+    /**
+     * Returns identity element: {@code operation(identity(), a)} and {@code operation(a, identity())} equal {@code a}.
+     *
+     * @return identity element.
+     */
+    T identity();
+
+    /**
+     * Combines two values. Must be associative.
+     *
+     * @param a left value.
+     * @param b right value.
+     * @return combined value.
+     */
+    T operation(T a, T b);
+
+    /**
+     * Creates monoid from identity element and operation.
+     *
+     * @param identity  identity element.
+     * @param operation associative operation.
+     * @param <T>       type of values.
+     * @return new monoid.
+     */
+    static <T> Monoid<T> of(T identity, BinaryOperator<T> operation) {
+        return new Monoid<T>() {
+            @Override
+            public T identity() {
+                return identity;
+            }
+
+            @Override
+            public T operation(T a, T b) {
+                return operation.apply(a, b);
+            }
+        };
+    }
+}
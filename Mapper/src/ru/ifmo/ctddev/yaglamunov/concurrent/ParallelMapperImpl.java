@@ -3,43 +3,329 @@ package ru.ifmo.ctddev.yaglamunov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 /**
  * Implementation for {@code ParallelMapper}.
+ * <p>
+ * Every {@code map} call becomes a job: a sequence of chunks of consecutive elements claimed through the job's
+ * own counter. The first chunk holds one element, and after every chunk the job doubles or halves its chunk size,
+ * so that chunks of this call take about {@link #TASK_NANOS} whatever the cost of other calls.
+ * Every worker owns a ring of job handles and claims chunks of the job at its head. Once the job has had the worker
+ * for {@code priority} times {@link #TASK_NANOS} and another job is in the ring, the next claim moves it to the tail
+ * first. So concurrent calls share workers round-robin, weighted by their priorities, a call that arrives behind
+ * a lone running call waits only for the chunks that workers are running, and a small call is usually done
+ * within its first turn. A submitted job is put into the rings of as many
+ * workers as it has elements, and a worker with an empty ring steals a handle of a live job from another ring.
+ * <p>
+ * A call is finished as soon as its future is completed: by the last chunk, by the first exception thrown
+ * from the function, or by cancellation. Unclaimed chunks of a finished call are dropped
+ * and running ones stop at the next element.
+ * <p>
+ * In blocking mode there are no worker threads: rings are slots taken by runners started on virtual threads
+ * if the runtime provides them, so the number of runners is limited by the number of slots.
  */
 public class ParallelMapperImpl implements ParallelMapper {
 
+    /**
+     * Preferred duration of one task in nanoseconds.
+     */
+    private static final long TASK_NANOS = 100_000;
+
+    /**
+     * Minimal number of tasks per thread, so that threads can balance uneven elements.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /**
+     * Priority of calls that do not specify one.
+     */
+    public static final int DEFAULT_PRIORITY = 1;
+
     private final List<Thread> threads;
-    private final Queue<Runnable> taskQueue = new LinkedList<>();
+    private final List<Worker> workers;
+
+    /**
+     * Number of tasks that may run at once.
+     */
+    private final int parallelism;
+
+    /**
+     * Executor of tasks in blocking mode, {@code null} otherwise.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Workers not taken by a runner in blocking mode, {@code null} otherwise.
+     */
+    private final Queue<Worker> slots;
+
+    /**
+     * Round-robin counter choosing the first ring for the next submitted job.
+     */
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * Processing of elements in range {@code [from, to)} of one call.
+     */
+    private interface Chunk {
+        void run(int from, int to);
+    }
+
+    /**
+     * Chunks of one call.
+     */
+    private static class Job {
+        private final Chunk chunk;
+        private final int size;
+        private final int maxChunkSize;
+        private final int priority;
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Number of elements in the next claimed chunk.
+         */
+        private volatile int chunkSize = 1;
+
+        /**
+         * @param chunk        processes chunk of elements.
+         * @param size         number of elements.
+         * @param maxChunkSize maximal number of elements in one chunk.
+         * @param priority     length of the job's turn in units of {@link #TASK_NANOS}.
+         */
+        Job(Chunk chunk, int size, int maxChunkSize, int priority) {
+            this.chunk = chunk;
+            this.size = size;
+            this.maxChunkSize = maxChunkSize;
+            this.priority = priority;
+        }
+
+        private boolean isLive() {
+            return next.get() < size;
+        }
+
+        /**
+         * Claims next chunk of current chunk size.
+         *
+         * @return claimed chunk or {@code null} if all elements are claimed.
+         */
+        private Runnable claim() {
+            int length = chunkSize;
+            for (int from = next.get(); from < size; from = next.get()) {
+                int to = (int) Math.min(size, (long) from + length);
+                if (next.compareAndSet(from, to)) {
+                    int start = from;
+                    return () -> run(start, to);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Processes chunk and doubles chunk size if it took less than half of {@link #TASK_NANOS},
+         * or halves it if it took more than twice as long.
+         *
+         * @param from index of the first element of the chunk.
+         * @param to   index after the last element of the chunk.
+         */
+        private void run(int from, int to) {
+            long time = System.nanoTime();
+            chunk.run(from, to);
+            time = System.nanoTime() - time;
+            int length = to - from;
+            if (time < TASK_NANOS / 2) {
+                if (length >= chunkSize) {
+                    chunkSize = (int) Math.min(maxChunkSize, 2L * length);
+                }
+            } else if (time > TASK_NANOS * 2) {
+                chunkSize = Math.max(1, length / 2);
+            }
+        }
+    }
 
     private class Worker implements Runnable {
+        private final Deque<Job> jobs = new ConcurrentLinkedDeque<>();
+        private final Thread thread;
+        private volatile boolean idle = false;
+
+        /**
+         * Job at the head of the ring when the last chunk was claimed, and time its turn started.
+         * Only used by the thread running this worker.
+         */
+        private Job current;
+        private long turnStart;
+
+        /**
+         * @param blocking whether the worker is a slot for runners instead of having its own thread.
+         */
+        Worker(boolean blocking) {
+            thread = blocking ? null : new Thread(this);
+        }
+
+        /**
+         * Claims next chunk of the job at the head of own ring, or of a job stolen from another ring.
+         * Exhausted jobs are removed, a job that used up its turn is moved to the tail if other jobs are waiting.
+         *
+         * @return claimed chunk or {@code null} if there are no live jobs.
+         */
+        private Runnable poll() {
+            Job job;
+            while ((job = jobs.peekFirst()) != null || (job = steal()) != null) {
+                long now = System.nanoTime();
+                if (job != current) {
+                    current = job;
+                    turnStart = now;
+                } else if (now - turnStart >= job.priority * TASK_NANOS && jobs.peekLast() != job) {
+                    // checked on every claim, so a job added during a lone job's turn is served next
+                    if (jobs.remove(job)) {
+                        jobs.addLast(job);
+                    }
+                    current = null;
+                    continue;
+                }
+                Runnable task = job.claim();
+                if (!job.isLive()) {
+                    jobs.remove(job);
+                    if (task == null) {
+                        continue;
+                    }
+                }
+                return task;
+            }
+            return null;
+        }
+
+        /**
+         * Copies handle of a live job from the tail of another ring to own ring.
+         *
+         * @return stolen job or {@code null} if other rings have no live jobs.
+         */
+        private Job steal() {
+            int start = ThreadLocalRandom.current().nextInt(workers.size());
+            for (int i = 0; i < workers.size(); i++) {
+                Worker victim = workers.get((start + i) % workers.size());
+                if (victim == this) {
+                    continue;
+                }
+                for (Iterator<Job> it = victim.jobs.descendingIterator(); it.hasNext(); ) {
+                    Job job = it.next();
+                    if (job.isLive()) {
+                        jobs.addLast(job);
+                        return job;
+                    }
+                }
+            }
+            return null;
+        }
 
         @Override
         public void run() {
-            while (true) {
-                Runnable task;
-
-                synchronized (taskQueue) {
-                    while (taskQueue.isEmpty()) {
-                        try {
-                            if (!Thread.interrupted()) {
-                                taskQueue.wait();
-                            } else {
-                                return;
-                            }
-                        } catch (InterruptedException e) {
-                            return;
-                        }
+            while (!Thread.interrupted()) {
+                Runnable task = poll();
+                if (task == null) {
+                    idle = true;
+                    // jobs added before idle was published are seen by this second look
+                    task = poll();
+                    if (task == null) {
+                        LockSupport.park(this);
+                        idle = false;
+                        continue;
                     }
-
-                    task = taskQueue.remove();
+                    idle = false;
                 }
 
                 task.run();
             }
         }
+    }
+
+    /**
+     * Drops unclaimed chunks of the job and removes it from all rings.
+     *
+     * @param job job to cancel.
+     */
+    private void cancel(Job job) {
+        job.next.set(job.size);
+        for (Worker worker : workers) {
+            worker.jobs.remove(job);
+        }
+    }
+
+    /**
+     * Adds job to the tails of rings of as many workers as it has elements and lets threads work on it.
+     *
+     * @param job job to add.
+     */
+    private void submit(Job job) {
+        int count = Math.min(job.size, workers.size());
+        int first = nextWorker.getAndAdd(count);
+        for (int i = 0; i < count; i++) {
+            workers.get(Math.floorMod(first + i, workers.size())).jobs.addLast(job);
+        }
+        signal(count);
+    }
 
+    /**
+     * Wakes up idle workers, or starts runners on free slots in blocking mode.
+     *
+     * @param count maximal number of threads needed.
+     */
+    private void signal(int count) {
+        if (executor != null) {
+            Worker slot;
+            for (int i = 0; i < count && (slot = slots.poll()) != null; i++) {
+                Worker taken = slot;
+                executor.execute(() -> runChunks(taken));
+            }
+            return;
+        }
+        for (Worker worker : workers) {
+            if (count == 0) {
+                break;
+            }
+            if (worker.idle) {
+                LockSupport.unpark(worker.thread);
+                count--;
+            }
+        }
+    }
+
+    /**
+     * Body of a runner in blocking mode: runs chunks from the slot while there are any.
+     *
+     * @param slot slot taken by the runner.
+     */
+    private void runChunks(Worker slot) {
+        try {
+            Runnable task;
+            while ((task = slot.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            slots.add(slot);
+        }
+        // a job added while all slots were taken could not start a runner
+        if (hasLiveJobs()) {
+            signal(1);
+        }
+    }
+
+    /**
+     * Checks whether any ring holds a job with unclaimed chunks.
+     */
+    private boolean hasLiveJobs() {
+        for (Worker worker : workers) {
+            for (Job job : worker.jobs) {
+                if (job.isLive()) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -48,16 +334,123 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threadsNumber number of threads to create.
      */
     public ParallelMapperImpl(int threadsNumber) {
+        this(threadsNumber, false);
+    }
+
+    /**
+     * Creates an instance of {@link ParallelMapper}, optionally for functions that block, e.g. on I/O.
+     * In blocking mode chunks are run on virtual threads (Java 21 and later)
+     * or on a pool of {@code concurrency} daemon threads on older runtimes,
+     * and at most {@code concurrency} chunks run at once.
+     * @param concurrency number of worker threads, or concurrency limit in blocking mode.
+     * @param blocking whether to run tasks on virtual threads instead of worker threads.
+     */
+    public ParallelMapperImpl(int concurrency, boolean blocking) {
         this.threads = new ArrayList<>();
+        this.workers = new ArrayList<>();
+        this.parallelism = concurrency;
+
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(new Worker(blocking));
+        }
+        if (blocking) {
+            executor = newBlockingExecutor(concurrency);
+            slots = new ConcurrentLinkedQueue<>(workers);
+            return;
+        }
+        executor = null;
+        slots = null;
+        workers.forEach(worker -> threads.add(worker.thread));
+        threads.forEach(Thread::start);
+    }
 
-        for (int i = 0; i < threadsNumber; i++) {
-            threads.add(new Thread(new Worker()));
-            threads.get(i).start();
+    /**
+     * Creates executor running every runner on a new virtual thread if the runtime supports them,
+     * or a pool of daemon threads otherwise.
+     *
+     * @param concurrency size of fallback pool.
+     * @return executor for blocking mode.
+     */
+    private static ExecutorService newBlockingExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Chooses maximal number of consecutive elements one task processes,
+     * so that there are at least {@link #TASKS_PER_THREAD} tasks for every thread.
+     *
+     * @param size number of elements.
+     * @return maximal number of elements in one task.
+     */
+    private int maxChunkSize(int size) {
+        int tasks = Math.max(1, parallelism) * TASKS_PER_THREAD;
+        return Math.max(1, (size + tasks - 1) / tasks);
+    }
+
+    /**
+     * Splits arguments into chunks and submits them as one job.
+     *
+     * @param function function to apply.
+     * @param args     arguments list.
+     * @param consumer receives offset and results of every completed chunk, may be {@code null}.
+     * @param priority priority of the job.
+     * @param <T>      type of arguments.
+     * @param <R>      type of results.
+     * @return future completed with list of results after all chunks are processed.
+     */
+    private <T, R> CompletableFuture<List<R>> start(Function<? super T, ? extends R> function, List<? extends T> args,
+                                                    BiConsumer<Integer, List<R>> consumer, int priority) {
+        if (priority < 1) {
+            throw new IllegalArgumentException("Priority must be positive: " + priority);
+        }
+        List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
+        CompletableFuture<List<R>> future = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(args.size());
+        if (args.isEmpty()) {
+            future.complete(result);
+            return future;
         }
+
+        Job job = new Job((start, end) -> {
+            try {
+                for (int i = start; i < end; i++) {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    result.set(i, function.apply(args.get(i)));
+                }
+
+                if (consumer != null) {
+                    consumer.accept(start, Collections.unmodifiableList(result.subList(start, end)));
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            if (remaining.addAndGet(start - end) == 0) {
+                future.complete(result);
+            }
+        }, args.size(), maxChunkSize(args.size()), priority);
+        // stale handles of a finished job are dropped at once, so idle rings do not hold its arguments
+        future.whenComplete((value, error) -> cancel(job));
+        submit(job);
+        return future;
     }
 
     /**
      * Applies function on each element of list and returns list of results.
+     * List is split into chunks of consecutive elements, each chunk is processed by one thread.
      * @param function function to apply.
      * @param args arguments list.
      * @param <T> type of arguments.
@@ -67,34 +460,104 @@ public class ParallelMapperImpl implements ParallelMapper {
      */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> function, final List<? extends T> args) throws InterruptedException {
-        ArrayList<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
-        int[] readyCount = {0};
-
-        for (int i = 0; i < args.size(); ++i) {
-            final int position = i;
-
-            synchronized (taskQueue) {
-                taskQueue.add(() -> {
-                    result.set(position, function.apply(args.get(position)));
+        return map(function, args, DEFAULT_PRIORITY);
+    }
 
-                    synchronized (readyCount) {
-                        readyCount[0]++;
-                        if (readyCount[0] == args.size()) {
-                            readyCount.notify();
-                        }
-                    }
-                });
-                taskQueue.notify();
-            }
+    /**
+     * Applies function on each element of list and returns list of results.
+     * While other calls are running, workers spend about {@code priority} times as long on this call in a row
+     * as on a call with {@link #DEFAULT_PRIORITY} before moving to the next call.
+     * @param function function to apply.
+     * @param args arguments list.
+     * @param priority positive weight of this call relative to concurrent calls.
+     * @param <T> type of arguments.
+     * @param <R> type of results.
+     * @return list of results of function applications.
+     * @throws InterruptedException wait for threads interrupted
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> function, List<? extends T> args, int priority)
+            throws InterruptedException {
+        CompletableFuture<List<R>> future = this.<T, R>start(function, args, null, priority);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw RangeParallelism.unchecked(e.getCause());
+        } finally {
+            future.cancel(false);
         }
+    }
 
-        synchronized (readyCount) {
-            while (readyCount[0] < args.size()) {
-                readyCount.wait();
-            }
+    /**
+     * Applies function on each element of list and returns list of results,
+     * giving up if the results are not ready in time. Chunks of the abandoned call are cancelled.
+     * @param function function to apply.
+     * @param args arguments list.
+     * @param timeout maximal time to wait.
+     * @param unit unit of {@code timeout}.
+     * @param <T> type of arguments.
+     * @param <R> type of results.
+     * @return list of results of function applications.
+     * @throws InterruptedException wait for threads interrupted
+     * @throws TimeoutException if the results are not ready in time
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> function, List<? extends T> args,
+                              long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        CompletableFuture<List<R>> future = this.<T, R>start(function, args, null, DEFAULT_PRIORITY);
+        try {
+            return future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw RangeParallelism.unchecked(e.getCause());
+        } finally {
+            future.cancel(false);
         }
+    }
 
-        return result;
+    /**
+     * Starts applying function on each element of list without waiting for the results.
+     *
+     * @param function function to apply.
+     * @param args     arguments list.
+     * @param <T>      type of arguments.
+     * @param <R>      type of results.
+     * @return future completed with list of results of function applications, or exceptionally with the first
+     * exception thrown by the function. Cancelling the future cancels the remaining chunks.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> function, List<? extends T> args) {
+        return mapAsync(function, args, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Starts applying function on each element of list with given priority without waiting for the results.
+     *
+     * @param function function to apply.
+     * @param args     arguments list.
+     * @param priority positive weight of this call relative to concurrent calls.
+     * @param <T>      type of arguments.
+     * @param <R>      type of results.
+     * @return future completed with list of results of function applications.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> function, List<? extends T> args,
+                                                      int priority) {
+        return this.<T, R>start(function, args, null, priority);
+    }
+
+    /**
+     * Starts applying function on each element of list and passes results to {@code consumer}
+     * chunk by chunk, as soon as every chunk is processed.
+     * <p>
+     * {@code consumer} is called from worker threads, possibly concurrently, with the index of the first element
+     * of the chunk and read-only list of its results.
+     *
+     * @param function function to apply.
+     * @param args     arguments list.
+     * @param consumer receiver of chunk results.
+     * @param <T>      type of arguments.
+     * @param <R>      type of results.
+     * @return future completed with list of all results after the last chunk is passed to {@code consumer}.
+     */
+    public <T, R> CompletableFuture<List<R>> mapStreaming(Function<? super T, ? extends R> function, List<? extends T> args,
+                                                          BiConsumer<Integer, List<R>> consumer) {
+        return start(function, args, consumer, DEFAULT_PRIORITY);
     }
 
     /**
@@ -103,6 +566,10 @@ public class ParallelMapperImpl implements ParallelMapper {
      */
     @Override
     public void close() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
         threads.forEach(Thread::interrupt);
         for (Thread thread : threads) {
             thread.join();
@@ -0,0 +1,198 @@
+package ru.ifmo.ctddev.yaglamunov.concurrent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.*;
+
+/**
+ * Lazy sequence of {@code map} and {@code filter} stages over a list, created by {@link IterativeParallelism#pipeline}.
+ * <p>
+ * Stages only describe the computation. A terminal operation splits the source list into parts
+ * and pushes every element of a part through all stages at once, so the whole query makes a single pass
+ * over the list and the only list created is the result of {@link #toList()}.
+ *
+ * @param <T> type of elements produced by the last stage.
+ */
+public class Pipeline<T> {
+    private final IterativeParallelism parallelism;
+    private final int threads;
+    private final List<?> source;
+
+    /**
+     * Pushes results of all stages for the given part of the source into the given consumer.
+     */
+    private final BiConsumer<List<?>, Consumer<? super T>> traversal;
+
+    private Pipeline(IterativeParallelism parallelism, int threads, List<?> source,
+                     BiConsumer<List<?>, Consumer<? super T>> traversal) {
+        this.parallelism = parallelism;
+        this.threads = threads;
+        this.source = source;
+        this.traversal = traversal;
+    }
+
+    /**
+     * Creates pipeline without stages.
+     *
+     * @param parallelism instance to run terminal operations with.
+     * @param threads     number of threads to use.
+     * @param list        source list.
+     * @param <T>         type of elements in the list.
+     * @return pipeline producing elements of the list.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Pipeline<T> of(IterativeParallelism parallelism, int threads, List<? extends T> list) {
+        return new Pipeline<>(parallelism, threads, list, (part, sink) -> ((List<? extends T>) part).forEach(sink));
+    }
+
+    /**
+     * Adds stage applying function to every element.
+     *
+     * @param function function to apply.
+     * @param <U>      type of results.
+     * @return new pipeline.
+     */
+    public <U> Pipeline<U> map(Function<? super T, ? extends U> function) {
+        return new Pipeline<>(parallelism, threads, source,
+                (part, sink) -> traversal.accept(part, value -> sink.accept(function.apply(value))));
+    }
+
+    /**
+     * Adds stage dropping elements that do not satisfy the predicate.
+     *
+     * @param predicate predicate to test elements with.
+     * @return new pipeline.
+     */
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+        return new Pipeline<>(parallelism, threads, source, (part, sink) -> traversal.accept(part, value -> {
+            if (predicate.test(value)) {
+                sink.accept(value);
+            }
+        }));
+    }
+
+    /**
+     * Runs the pipeline, accumulating results of every part into its own container.
+     *
+     * @param container   creates an empty container for a part.
+     * @param accumulator adds element to container.
+     * @param finisher    combines containers of all parts in their order.
+     * @param <A>         type of containers.
+     * @param <R>         type of result.
+     * @return combined result.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public <A, R> R collect(Supplier<A> container, BiConsumer<A, ? super T> accumulator,
+                            Function<List<? extends A>, R> finisher) throws InterruptedException {
+        return parallelism.concurrentFunction(threads, source, part -> {
+            A result = container.get();
+            traversal.accept(part, value -> accumulator.accept(result, value));
+            return result;
+        }, finisher);
+    }
+
+    /**
+     * Collects results of the pipeline into a list.
+     *
+     * @return list of results in order of source elements.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public List<T> toList() throws InterruptedException {
+        return collect(ArrayList<T>::new, List::add, parts -> {
+            List<T> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+            parts.forEach(result::addAll);
+            return result;
+        });
+    }
+
+    /**
+     * Reduces results of the pipeline with associative operation.
+     *
+     * @param identity  identity of the operation.
+     * @param operation operation to apply.
+     * @return reduced value, or {@code identity} if there are no results.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public T reduce(T identity, BinaryOperator<T> operation) throws InterruptedException {
+        return this.<Accumulator<T>, T>collect(() -> new Accumulator<>(identity),
+                (accumulator, value) -> accumulator.add(value, operation), parts -> {
+                    Accumulator<T> result = new Accumulator<>(identity);
+                    for (Accumulator<T> part : parts) {
+                        result.add(part.value, operation);
+                    }
+                    return result.value;
+                });
+    }
+
+    /**
+     * Finds maximum of results of the pipeline.
+     *
+     * @param comparator comparator to be used for searching.
+     * @return maximum of results, or {@code null} if there are no results.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public T maximum(Comparator<? super T> comparator) throws InterruptedException {
+        return reduce(null, nullable((a, b) -> comparator.compare(a, b) >= 0 ? a : b));
+    }
+
+    /**
+     * Finds minimum of results of the pipeline.
+     *
+     * @param comparator comparator to be used for searching.
+     * @return minimum of results, or {@code null} if there are no results.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public T minimum(Comparator<? super T> comparator) throws InterruptedException {
+        return reduce(null, nullable((a, b) -> comparator.compare(a, b) <= 0 ? a : b));
+    }
+
+    /**
+     * Counts results of the pipeline.
+     *
+     * @return number of results.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public long count() throws InterruptedException {
+        return this.<long[], Long>collect(() -> new long[1], (counter, value) -> counter[0]++, parts -> {
+            long result = 0;
+            for (long[] counter : parts) {
+                result += counter[0];
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Concatenates string representations of results of the pipeline.
+     *
+     * @return concatenated string.
+     * @throws InterruptedException if one of created threads was interrupted.
+     */
+    public String join() throws InterruptedException {
+        return collect(StringBuilder::new, StringBuilder::append, parts -> {
+            StringBuilder result = new StringBuilder(parts.stream().mapToInt(StringBuilder::length).sum());
+            parts.forEach(result::append);
+            return result.toString();
+        });
+    }
+
+    /**
+     * Extends operation to treat {@code null} as absent value.
+     */
+    private static <T> BinaryOperator<T> nullable(BinaryOperator<T> operation) {
+        return (a, b) -> a == null ? b : b == null ? a : operation.apply(a, b);
+    }
+
+    private static class Accumulator<T> {
+        private T value;
+
+        Accumulator(T identity) {
+            value = identity;
+        }
+
+        void add(T next, BinaryOperator<T> operation) {
+            value = operation.apply(value, next);
+        }
+    }
+}
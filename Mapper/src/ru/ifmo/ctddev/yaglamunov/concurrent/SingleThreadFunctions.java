@@ -3,11 +3,29 @@ package ru.ifmo.ctddev.yaglamunov.concurrent;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 class SingleThreadFunctions {
+    /**
+     * String representations of a part of the list with their total length.
+     */
+    static class Strings {
+        final String[] values;
+        final long length;
+
+        Strings(String[] values, long length) {
+            this.values = values;
+            this.length = length;
+        }
+    }
+
     /**
      * Finds maximum element in the list.
      *
@@ -35,29 +53,152 @@ class SingleThreadFunctions {
     }
 
     /**
-     * Tests if all list elements satisfy the predicate.
+     * Tests if any list element satisfies the predicate, giving up as soon as {@code found} is set by another thread.
      *
      * @param list      the list to be tested.
      * @param predicate predicate to test with.
+     * @param found     flag shared by all parts, set when satisfying element is met.
      * @param <T>       type of elements in the list.
-     * @return {@code true} if all elements of the list satisfy predicate, {@code false} otherwise.
-     * @throws InterruptedException if one of created threads was interrupted.
+     * @return {@code true} if satisfying element was met by this call, {@code false} otherwise.
+     */
+    <T> boolean any(List<? extends T> list, Predicate<? super T> predicate, AtomicBoolean found) {
+        for (T value : list) {
+            if (found.get()) {
+                return false;
+            }
+            if (predicate.test(value)) {
+                found.set(true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the first element satisfying the predicate and lowers {@code best} to its index,
+     * giving up as soon as {@code best} is not greater than index of the current element.
+     *
+     * @param list      part of the list to be searched.
+     * @param offset    index of the first element of the part in the whole list.
+     * @param predicate predicate to test with.
+     * @param best      least known index of satisfying element, shared by all parts.
+     * @param <T>       type of elements in the list.
+     * @return {@code null}.
+     */
+    <T> Void findFirst(List<? extends T> list, int offset, Predicate<? super T> predicate, AtomicInteger best) {
+        for (int i = 0; i < list.size() && offset + i < best.get(); i++) {
+            if (predicate.test(list.get(i))) {
+                best.accumulateAndGet(offset + i, Math::min);
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds any element satisfying the predicate and stores its index in {@code found} unless it is already set,
+     * giving up as soon as {@code found} is set by another thread.
+     *
+     * @param list      part of the list to be searched.
+     * @param offset    index of the first element of the part in the whole list.
+     * @param predicate predicate to test with.
+     * @param found     index of found element or {@code -1}, shared by all parts.
+     * @param <T>       type of elements in the list.
+     * @return {@code null}.
+     */
+    <T> Void findAny(List<? extends T> list, int offset, Predicate<? super T> predicate, AtomicInteger found) {
+        for (int i = 0; i < list.size() && found.get() < 0; i++) {
+            if (predicate.test(list.get(i))) {
+                found.compareAndSet(-1, offset + i);
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies function on every element of list and combines results with monoid operation.
+     *
+     * @param list   the list to be reduced.
+     * @param lift   function to apply on list elements.
+     * @param monoid monoid to combine results with.
+     * @param <T>    type of elements in the list.
+     * @param <R>    type of results.
+     * @return combined results, or identity if list is empty.
+     */
+    <T, R> R mapReduce(List<? extends T> list, Function<? super T, ? extends R> lift, Monoid<R> monoid) {
+        R result = monoid.identity();
+        for (T value : list) {
+            result = monoid.operation(result, lift.apply(value));
+        }
+        return result;
+    }
+
+    /**
+     * Sums values of function on list elements.
+     *
+     * @param list     the list to be summed.
+     * @param function function to apply on list elements.
+     * @param <T>      type of elements in the list.
+     * @return sum of function values.
+     */
+    <T> long sum(List<? extends T> list, ToLongFunction<? super T> function) {
+        long result = 0;
+        for (T value : list) {
+            result += function.applyAsLong(value);
+        }
+        return result;
+    }
+
+    /**
+     * Sums values of function on list elements.
+     *
+     * @param list     the list to be summed.
+     * @param function function to apply on list elements.
+     * @param <T>      type of elements in the list.
+     * @return sum of function values.
      */
-    <T> boolean all(List<? extends T> list, Predicate<? super T> predicate) {
-        return list.stream().allMatch(predicate);
+    <T> double sumDouble(List<? extends T> list, ToDoubleFunction<? super T> function) {
+        double result = 0;
+        for (T value : list) {
+            result += function.applyAsDouble(value);
+        }
+        return result;
     }
 
     /**
-     * Tests if any list element satisfies the predicate.
+     * Counts list elements satisfying the predicate.
      *
      * @param list      the list to be tested.
      * @param predicate predicate to test with.
      * @param <T>       type of elements in the list.
-     * @return {@code true} if any element of the list satisfies predicate, {@code false} otherwise.
-     * @throws InterruptedException if one of created threads was interrupted.
+     * @return number of satisfying elements.
+     */
+    <T> long count(List<? extends T> list, Predicate<? super T> predicate) {
+        long result = 0;
+        for (T value : list) {
+            if (predicate.test(value)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts list elements in every bucket.
+     *
+     * @param list    the list to be counted.
+     * @param bucket  function returning bucket of element.
+     * @param buckets number of buckets.
+     * @param <T>     type of elements in the list.
+     * @return array of counts indexed by bucket.
      */
-    <T> boolean any(List<? extends T> list, Predicate<? super T> predicate) {
-        return list.stream().anyMatch(predicate);
+    <T> long[] histogram(List<? extends T> list, ToIntFunction<? super T> bucket, int buckets) {
+        long[] result = new long[buckets];
+        for (T value : list) {
+            result[bucket.applyAsInt(value)]++;
+        }
+        return result;
     }
 
     /**
@@ -99,12 +240,36 @@ class SingleThreadFunctions {
     }
 
     /**
-     * Concatenates list elements into a string.
+     * Converts list elements to strings and counts their total length.
+     *
+     * @param values the list to be converted.
+     * @return string representations of list elements.
+     */
+    Strings toStrings(List<?> values) {
+        String[] strings = new String[values.size()];
+        long length = 0;
+        int i = 0;
+        for (Object value : values) {
+            strings[i] = value.toString();
+            length += strings[i].length();
+            i++;
+        }
+        return new Strings(strings, length);
+    }
+
+    /**
+     * Copies strings one after another into the buffer.
      *
-     * @param values the list to be joined.
-     * @return Concatenated string representations of list elements.
+     * @param strings strings to copy.
+     * @param target  buffer to copy to.
+     * @param offset  position in buffer of the first character.
+     * @return {@code null}.
      */
-    String join(List<?> values) {
-        return values.stream().map(Object::toString).collect(Collectors.joining());
+    Void copy(Strings strings, char[] target, int offset) {
+        for (String value : strings.values) {
+            value.getChars(0, value.length(), target, offset);
+            offset += value.length();
+        }
+        return null;
     }
 }